@@ -0,0 +1,71 @@
+package com.moodysalem.jaxrs.lib.test;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the SQL statements that hibernate prepares, so that tests can assert how many queries a request makes and
+ * catch associations that are loaded one entity at a time, or what the statements write
+ */
+public class StatementCounter implements StatementInspector {
+    private static final AtomicLong COUNT = new AtomicLong(0);
+    private static final AtomicReference<List<String>> CAPTURED = new AtomicReference<>();
+
+    /**
+     * Get the hibernate properties that register the counter, to be passed to
+     * {@link com.moodysalem.jaxrs.lib.factories.JAXRSEntityManagerFactory.Builder#withAdditionalProperties}
+     *
+     * @return the properties
+     */
+    public static Properties properties() {
+        final Properties properties = new Properties();
+        properties.setProperty(AvailableSettings.STATEMENT_INSPECTOR, StatementCounter.class.getName());
+        return properties;
+    }
+
+    /**
+     * Count the statements prepared while some work runs
+     *
+     * @param work to run
+     * @return the number of statements prepared by the work
+     */
+    public static long count(Runnable work) {
+        final long before = COUNT.get();
+        work.run();
+        return COUNT.get() - before;
+    }
+
+    /**
+     * Capture the SQL of the statements prepared while some work runs
+     *
+     * @param work to run
+     * @return the statements prepared by the work, in order
+     */
+    public static List<String> capture(Runnable work) {
+        final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        CAPTURED.set(statements);
+        try {
+            work.run();
+        } finally {
+            CAPTURED.set(null);
+        }
+        return statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.incrementAndGet();
+        final List<String> statements = CAPTURED.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
@@ -1,18 +1,32 @@
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.moodysalem.hibernate.model.VersionedEntity;
 import com.moodysalem.jaxrs.lib.BaseApplication;
 import com.moodysalem.jaxrs.lib.exceptionmappers.ErrorResponse;
 import com.moodysalem.jaxrs.lib.factories.JAXRSEntityManagerFactory;
+import com.moodysalem.jaxrs.lib.resources.EntityResource;
 import com.moodysalem.jaxrs.lib.resources.VersionedEntityResource;
 import com.moodysalem.jaxrs.lib.resources.config.PaginationParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.util.JsonMergePatch;
+import com.moodysalem.jaxrs.lib.resources.util.MultiGetResult;
+import com.moodysalem.jaxrs.lib.resources.util.RequestExecutors;
+import com.moodysalem.jaxrs.lib.resources.util.TXHelper;
 import com.moodysalem.jaxrs.lib.test.BaseTest;
+import com.moodysalem.jaxrs.lib.test.StatementCounter;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.process.internal.RequestScoped;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.client.HttpUrlConnectorProvider;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.validator.constraints.NotBlank;
 import org.testng.annotations.Test;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.persistence.*;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.validation.constraints.Min;
@@ -21,10 +35,17 @@ import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.testng.AssertJUnit.assertTrue;
 
@@ -35,11 +56,17 @@ public class EntityResourceTest extends BaseTest {
     public static final String X_COUNT = "X-Count";
     public static final String START = "start";
     public static final String COUNT = "count";
+    public static final String CURSOR = "cursor";
+    public static final String X_NEXT_CURSOR = "X-Next-Cursor";
+    public static final String SORT = "sort";
+    public static final String COUNT_STRATEGY = "countStrategy";
+    public static final String FIELDS = "fields";
 
     private static final PaginationParameterConfiguration paginationConfig =
             new PaginationParameterConfiguration(START, COUNT, X_START, X_COUNT, X_TOTAL_COUNT, 500);
 
     @javax.persistence.Entity
+    @DynamicUpdate
     @Table(name = "MyEntity")
     public static class MyEntity extends VersionedEntity {
         @NotBlank
@@ -81,6 +108,100 @@ public class EntityResourceTest extends BaseTest {
         }
     }
 
+    @javax.persistence.Entity
+    @Cacheable
+    @Table(name = "Note")
+    public static class Note extends VersionedEntity {
+        private String text;
+
+        // set by the resource, and never read from JSON
+        @JsonIgnore
+        private String revision;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        @JsonProperty
+        public String getRevision() {
+            return revision;
+        }
+
+        @JsonIgnore
+        public void setRevision(String revision) {
+            this.revision = revision;
+        }
+    }
+
+    @Path("notes")
+    public static class NoteResource extends VersionedEntityResource<Note> {
+        @Context
+        private ContainerRequestContext req;
+
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public Class<Note> getEntityClass() {
+            return Note.class;
+        }
+
+        @Override
+        public boolean canMerge(Note oldData, Note newData) {
+            return true;
+        }
+
+        @Override
+        public void beforeMerge(Note oldData, Note newData) {
+            newData.setRevision("revision of " + newData.getText());
+        }
+
+        @Override
+        public void afterMerge(Note entity) {
+
+        }
+
+        // deletes are only authorized by the predicate
+        @Override
+        public boolean canDelete(Note toDelete) {
+            return false;
+        }
+
+        @Override
+        public Predicate getCannotDeletePredicate(Root<Note> root) {
+            return getEntityManager().getCriteriaBuilder().like(root.get("text"), "keep%");
+        }
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<Note> root) {
+
+        }
+
+        @Override
+        public void beforeSend(List<Note> entity) {
+
+        }
+
+        @Override
+        public ContainerRequestContext getContainerRequestContext() {
+            return req;
+        }
+
+        @Override
+        public EntityManager getEntityManager() {
+            return em;
+        }
+
+        @Override
+        public void checkAccess(Action action) {
+
+        }
+    }
+
 
     @Path("myentity")
     public static class MyEntityResource extends VersionedEntityResource<MyEntity> {
@@ -146,8 +267,308 @@ public class EntityResourceTest extends BaseTest {
         }
     }
 
+    @Path("streamed")
+    public static class StreamedEntityResource extends MyEntityResource {
+        @Override
+        public PaginationParameterConfiguration getPaginationConfiguration() {
+            return PaginationParameterConfiguration.DEFAULT;
+        }
+
+        @Override
+        public Integer getStreamChunkSize() {
+            return 7;
+        }
+    }
+
+    // reads and writes with the factory that turns on the optional features
+    @Path("features")
+    public static class FeaturesEntityResource extends MyEntityResource {
+        @Inject
+        @Named(FEATURES)
+        private EntityManager em;
+
+        @Override
+        public EntityManager getEntityManager() {
+            return em;
+        }
+    }
+
+    @Path("parallel")
+    public static class ParallelCountEntityResource extends FeaturesEntityResource {
+        @Override
+        public JAXRSEntityManagerFactory getCountEntityManagerFactory() {
+            return features;
+        }
+    }
+
+    @Path("cached")
+    public static class CachedNoteResource extends NoteResource {
+        @Inject
+        @Named(FEATURES)
+        private EntityManager em;
+
+        @Override
+        public EntityManager getEntityManager() {
+            return em;
+        }
+
+        @Override
+        public boolean isIdLookupCached() {
+            return true;
+        }
+
+        @Override
+        public boolean canDelete(Note toDelete) {
+            return true;
+        }
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<Note> root) {
+            predicates.add(em.getCriteriaBuilder().notLike(root.get("text"), "hidden%"));
+        }
+    }
+
+    @Path("joined")
+    public static class JoinedEntityResource extends MyEntityResource {
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<MyEntity> root) {
+            final Join<MyEntity, String> strings = root.join("strings", JoinType.LEFT);
+            predicates.add(em.getCriteriaBuilder().or(
+                    strings.isNull(),
+                    em.getCriteriaBuilder().notEqual(strings, "excluded")
+            ));
+        }
+    }
+
+    @Path("graph")
+    public static class GraphEntityResource extends MyEntityResource {
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public EntityGraph<MyEntity> getEntityGraph(Action action) {
+            final EntityGraph<MyEntity> graph = em.createEntityGraph(MyEntity.class);
+            graph.addAttributeNodes("strings");
+            return graph;
+        }
+    }
+
+    @Path("merged")
+    public static class MergedEntityResource extends MyEntityResource {
+        @Override
+        public boolean isReturnMerged() {
+            return true;
+        }
+    }
+
+    @Path("bulk")
+    public static class BulkEntityResource extends MyEntityResource {
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public boolean isBulkDelete() {
+            return true;
+        }
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<MyEntity> root) {
+            predicates.add(em.getCriteriaBuilder().like(root.get("hometown"), "bulk%"));
+        }
+
+        // null for the entities that are not validated, which can be deleted
+        @Override
+        public Predicate getCannotDeletePredicate(Root<MyEntity> root) {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            return cb.or(cb.like(root.get("hometown"), "bulk keep%"), cb.gt(root.get("validated"), 100));
+        }
+    }
+
+    @Path("bulkdenied")
+    public static class BulkDeniedEntityResource extends MyEntityResource {
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public boolean isBulkDelete() {
+            return true;
+        }
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<MyEntity> root) {
+            predicates.add(em.getCriteriaBuilder().like(root.get("hometown"), "bulk denied%"));
+        }
+
+        // without a predicate, bulk deletes still check each entity
+        @Override
+        public boolean canDelete(MyEntity entity) {
+            return false;
+        }
+    }
+
+    @Path("authorized")
+    public static class AuthorizedEntityResource extends MyEntityResource {
+        private static final AtomicInteger MERGE_CHECKS = new AtomicInteger();
+
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<MyEntity> root) {
+            predicates.add(em.getCriteriaBuilder().like(root.get("hometown"), "authorized%"));
+        }
+
+        @Override
+        public List<MyEntity> getCannotMerge(List<MyEntity> list, Map<UUID, MyEntity> oldData) {
+            MERGE_CHECKS.incrementAndGet();
+            return list.stream().filter(e -> e.getHometown().contains("deny")).collect(Collectors.toList());
+        }
+
+        // the per entity checks are replaced by the set based ones
+        @Override
+        public boolean canMerge(MyEntity oldData, MyEntity newData) {
+            return false;
+        }
+
+        @Override
+        public boolean canDelete(MyEntity entity) {
+            return false;
+        }
+
+        @Override
+        public Predicate getCannotDeletePredicate(Root<MyEntity> root) {
+            return em.getCriteriaBuilder().like(root.get("hometown"), "authorized keep%");
+        }
+    }
+
+    @Path("async")
+    public static class AsyncEntityResource extends MyEntityResource {
+        private static final ExecutorService EXECUTOR = RequestExecutors.create("async", 2);
+        private static final Set<String> THREADS = Collections.synchronizedSet(new HashSet<>());
+
+        @Override
+        public Executor getRequestExecutor() {
+            return EXECUTOR;
+        }
+
+        @Override
+        public void beforeSend(List<MyEntity> entity) {
+            THREADS.add(Thread.currentThread().getName());
+        }
+    }
+
+    @Path("slow")
+    public static class SlowEntityResource extends AsyncEntityResource {
+        @Override
+        public Long getTimeout(Action action) {
+            return 100L;
+        }
+
+        @Override
+        public void beforeSend(List<MyEntity> entity) {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Path("admin")
+    public static class AdminEntityResource extends MyEntityResource {
+        private static final PaginationParameterConfiguration SMALL_PAGES =
+                new PaginationParameterConfiguration(START, COUNT, X_START, X_COUNT, X_TOTAL_COUNT, 2);
+
+        @Context
+        private ContainerRequestContext req;
+
+        // admins can read larger pages
+        @Override
+        public PaginationParameterConfiguration getPaginationConfiguration() {
+            return req.getHeaderString("X-Admin") != null ? super.getPaginationConfiguration() : SMALL_PAGES;
+        }
+    }
+
+    @Path("imported")
+    public static class ImportedEntityResource extends MyEntityResource {
+        @Override
+        public int getImportChunkSize() {
+            return 10;
+        }
+    }
+
+    @Path("exported")
+    public static class ExportedEntityResource extends MyEntityResource {
+        @Inject
+        private EntityManager em;
+
+        @Override
+        public Integer getExportChunkSize() {
+            return 3;
+        }
+
+        @Override
+        public void getPredicatesFromRequest(List<Predicate> predicates, Root<MyEntity> root) {
+            predicates.add(em.getCriteriaBuilder().like(root.get("hometown"), "export%"));
+        }
+
+        @Override
+        public void beforeSend(List<MyEntity> entity) {
+            entity.forEach(e -> e.setHometown(e.getHometown().toUpperCase()));
+        }
+    }
+
+    @Path("replicated")
+    public static class ReplicatedEntityResource extends FeaturesEntityResource {
+        @Override
+        public JAXRSEntityManagerFactory getReadEntityManagerFactory() {
+            return features;
+        }
+    }
+
+    private static final String FEATURES = "features";
+
+    private static JAXRSEntityManagerFactory emf, features, replica;
+
     @Override
     public ResourceConfig getResourceConfig() {
+        // a second database stands in for a replica of the primary, and is only written to directly
+        final String replicaUrl = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+        replica = JAXRSEntityManagerFactory.builder("replica")
+                .withUrl(replicaUrl)
+                .withUser("sa").withPassword("sa")
+                .withPersistenceUnit("mpu")
+                .withChangelogFile("ertest/schema.xml")
+                .build();
+
+        emf = JAXRSEntityManagerFactory.builder("my em")
+                .withUrl("jdbc:h2:mem:tester;DB_CLOSE_DELAY=-1")
+                .withUser("sa").withPassword("sa")
+                .withPersistenceUnit("mpu")
+                .withChangelogFile("ertest/schema.xml")
+                .withShowSql(true)
+                .withAdditionalProperties(StatementCounter.properties())
+                .build();
+
+        // the same database, through a factory with the optional features turned on, so that the tests of the
+        // other resources run against the default configuration
+        features = JAXRSEntityManagerFactory.builder(FEATURES)
+                .withUrl("jdbc:h2:mem:tester;DB_CLOSE_DELAY=-1")
+                .withReadReplicaUrl(replicaUrl)
+                .withReadYourWritesWindow(60000)
+                .withUser("sa").withPassword("sa")
+                .withPersistenceUnit("mpu")
+                .withChangelogFile("ertest/schema.xml")
+                .withShowSql(true)
+                .withParallelQueryThreads(2)
+                .withSecondLevelCache(100, 60)
+                .withJdbcBatchSize(50)
+                .withAdditionalProperties(StatementCounter.properties())
+                .build();
+
         ResourceConfig rc = new BaseApplication() {
             @Override
             public boolean forceLoadBalancerHTTPS() {
@@ -163,18 +584,29 @@ public class EntityResourceTest extends BaseTest {
         rc.register(new AbstractBinder() {
             @Override
             protected void configure() {
-                bindFactory(JAXRSEntityManagerFactory.builder("my em")
-                        .withUrl("jdbc:h2:mem:tester;DB_CLOSE_DELAY=-1")
-                        .withUser("sa").withPassword("sa")
-                        .withPersistenceUnit("mpu")
-                        .withChangelogFile("ertest/schema.xml")
-                        .withShowSql(true)
-                        .build())
-                        .to(EntityManager.class).in(RequestScoped.class).proxy(true);
+                bindFactory(emf).to(EntityManager.class).in(RequestScoped.class).proxy(true);
+                bindFactory(features).to(EntityManager.class).named(FEATURES).in(RequestScoped.class).proxy(true);
             }
         });
         // register the resource
         rc.register(MyEntityResource.class);
+        rc.register(StreamedEntityResource.class);
+        rc.register(FeaturesEntityResource.class);
+        rc.register(ParallelCountEntityResource.class);
+        rc.register(CachedNoteResource.class);
+        rc.register(JoinedEntityResource.class);
+        rc.register(GraphEntityResource.class);
+        rc.register(MergedEntityResource.class);
+        rc.register(BulkEntityResource.class);
+        rc.register(BulkDeniedEntityResource.class);
+        rc.register(AuthorizedEntityResource.class);
+        rc.register(NoteResource.class);
+        rc.register(ReplicatedEntityResource.class);
+        rc.register(AsyncEntityResource.class);
+        rc.register(SlowEntityResource.class);
+        rc.register(AdminEntityResource.class);
+        rc.register(ImportedEntityResource.class);
+        rc.register(ExportedEntityResource.class);
         return rc;
     }
 
@@ -249,6 +681,746 @@ public class EntityResourceTest extends BaseTest {
         assertTrue(del.getStatus() == 204);
     }
 
+    @Test
+    public void testEntityTag() {
+        final WebTarget wt = target("myentity");
+        MyEntity me = new MyEntity();
+        me.setHometown("tagged");
+        me = wt.request().post(Entity.json(Collections.singletonList(me)), new GenericType<List<MyEntity>>() {
+        }).get(0);
+
+        final Response first = wt.path(me.getId().toString()).request().get();
+        assertTrue(first.getStatus() == 200);
+        final String tag = first.getHeaderString(HttpHeaders.ETAG);
+        assertTrue(tag != null);
+
+        // unchanged entities are not sent again
+        final Response notModified = wt.path(me.getId().toString()).request()
+                .header(HttpHeaders.IF_NONE_MATCH, tag).get();
+        assertTrue(notModified.getStatus() == 304);
+        assertTrue(tag.equals(notModified.getHeaderString(HttpHeaders.ETAG)));
+
+        // updating the entity changes its tag
+        me.setHometown("retagged");
+        wt.request().post(Entity.json(Collections.singletonList(me)));
+        final Response modified = wt.path(me.getId().toString()).request()
+                .header(HttpHeaders.IF_NONE_MATCH, tag).get();
+        assertTrue(modified.getStatus() == 200);
+        assertTrue(!tag.equals(modified.getHeaderString(HttpHeaders.ETAG)));
+
+        assertTrue(wt.path(me.getId().toString()).request().delete().getStatus() == 204);
+
+        // missing entities are still not found
+        assertTrue(wt.path(me.getId().toString()).request()
+                .header(HttpHeaders.IF_NONE_MATCH, tag).get().getStatus() == 404);
+    }
+
+    @Test
+    public void testListEntityTag() {
+        final WebTarget wt = target("myentity").queryParam(SORT, "A|hometown");
+        MyEntity me = new MyEntity();
+        me.setHometown("listed");
+        me = wt.request().post(Entity.json(Collections.singletonList(me)), new GenericType<List<MyEntity>>() {
+        }).get(0);
+
+        final Response first = wt.request().get();
+        assertTrue(first.getStatus() == 200);
+        final String tag = first.getHeaderString(HttpHeaders.ETAG);
+        assertTrue(tag != null && tag.startsWith("W/"));
+        assertTrue(first.getHeaderString(HttpHeaders.LAST_MODIFIED) != null);
+
+        // the list is not sent again while it is unchanged
+        final Response notModified = wt.request().header(HttpHeaders.IF_NONE_MATCH, tag).get();
+        assertTrue(notModified.getStatus() == 304);
+
+        // lists that are not counted exactly are only summarized for conditional requests
+        final List<Response> responses = new ArrayList<>();
+        final List<String> statements = StatementCounter.capture(() ->
+                responses.add(wt.queryParam(COUNT_STRATEGY, "NONE").request().get()));
+        assertTrue(responses.get(0).getStatus() == 200 && responses.get(0).getHeaderString(HttpHeaders.ETAG) == null);
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("max(")));
+        final String noneTag = wt.queryParam(COUNT_STRATEGY, "NONE").request().header(HttpHeaders.IF_NONE_MATCH, tag)
+                .get().getHeaderString(HttpHeaders.ETAG);
+        assertTrue(noneTag != null && wt.queryParam(COUNT_STRATEGY, "NONE").request()
+                .header(HttpHeaders.IF_NONE_MATCH, noneTag).get().getStatus() == 304);
+
+        // other pages of the same rows have their own tag
+        assertTrue(wt.queryParam(COUNT, 1).request().header(HttpHeaders.IF_NONE_MATCH, tag).get().getStatus() == 200);
+
+        // removing a row changes the tag
+        assertTrue(wt.path(me.getId().toString()).request().delete().getStatus() == 204);
+        final Response modified = wt.request().header(HttpHeaders.IF_NONE_MATCH, tag).get();
+        assertTrue(modified.getStatus() == 200);
+        assertTrue(!tag.equals(modified.getHeaderString(HttpHeaders.ETAG)));
+    }
+
+    @Test
+    public void testCachedIdLookup() {
+        final WebTarget wt = target("notes");
+        final WebTarget cached = target("cached");
+        Note visible = new Note();
+        visible.setText("cached");
+        Note hidden = new Note();
+        hidden.setText("hidden cached");
+        final List<Note> saved = cached.request().post(Entity.json(Arrays.asList(visible, hidden)),
+                new GenericType<List<Note>>() {
+                });
+        // the saved entities are not returned in the order they were posted
+        visible = saved.stream().filter(e -> e.getText().equals("cached")).findFirst().get();
+        hidden = saved.stream().filter(e -> e.getText().equals("hidden cached")).findFirst().get();
+
+        final EntityManager em = features.provide();
+        try {
+            final Cache cache = em.getEntityManagerFactory().getCache();
+
+            assertTrue(cached.path(visible.getId().toString()).request().get().getStatus() == 200);
+            assertTrue(cache.contains(Note.class, visible.getId()));
+
+            // the predicates of the request still apply to entities in the cache
+            assertTrue(wt.path(hidden.getId().toString()).request().get().getStatus() == 200);
+            assertTrue(cached.path(hidden.getId().toString()).request().get().getStatus() == 404);
+
+            // writes are never served stale from the cache
+            visible.setText("cached again");
+            visible = cached.request().post(Entity.json(Collections.singletonList(visible)),
+                    new GenericType<List<Note>>() {
+                    }).get(0);
+            assertTrue(cached.path(visible.getId().toString()).request().get(Note.class)
+                    .getText().equals("cached again"));
+
+            assertTrue(cached.path(visible.getId().toString()).request().delete().getStatus() == 204);
+            assertTrue(!cache.contains(Note.class, visible.getId()));
+            assertTrue(cached.path(visible.getId().toString()).request().get().getStatus() == 404);
+        } finally {
+            features.dispose(em);
+        }
+
+        final WebTarget hiddenTarget = wt.path(hidden.getId().toString());
+        assertTrue(hiddenTarget.request().header(HttpHeaders.IF_MATCH,
+                hiddenTarget.request().get().getEntityTag().toString()).delete().getStatus() == 204);
+    }
+
+    @Test
+    public void testFields() {
+        final WebTarget wt = target("myentity");
+        final MyEntity toSave = new MyEntity();
+        toSave.setHometown("sparse");
+        toSave.setStrings(new HashSet<>(Arrays.asList("a", "b")));
+        final MyEntity me = wt.request().post(Entity.json(Collections.singletonList(toSave)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+
+        final Response r = wt.queryParam(FIELDS, "hometown,validated").queryParam(SORT, "A|version").request().get();
+        assertTrue(r.getStatus() == 200);
+        assertTrue(r.getHeaderString(X_TOTAL_COUNT) != null);
+        final List<Map<String, Object>> partial = r.readEntity(new GenericType<List<Map<String, Object>>>() {
+        });
+        final Map<String, Object> sparse = partial.stream()
+                .filter(e -> me.getId().toString().equals(e.get("id"))).findFirst().get();
+        assertTrue(sparse.keySet().equals(new HashSet<>(Arrays.asList("id", "hometown", "validated"))));
+        assertTrue("sparse".equals(sparse.get("hometown")));
+
+        // collections and unknown attributes cannot be requested
+        assertTrue(wt.queryParam(FIELDS, "strings").request().get().getStatus() == 400);
+        assertTrue(wt.queryParam(FIELDS, "hometown,nope").request().get().getStatus() == 400);
+
+        assertTrue(wt.path(me.getId().toString()).request().delete().getStatus() == 204);
+    }
+
+    @Test
+    public void testJoinedList() {
+        final WebTarget wt = target("myentity");
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("joined " + i);
+            me.setStrings(new HashSet<>(Arrays.asList("x", "y", "z")));
+            toSave.add(me);
+        }
+        final List<MyEntity> saved = wt.request().post(Entity.json(toSave), new GenericType<List<MyEntity>>() {
+        });
+
+        // each entity matches once per string, but is listed once and in order
+        final Response response = target("joined").queryParam(SORT, "D|hometown").queryParam(COUNT, 3)
+                .request().get();
+        final long total = Long.parseLong(response.getHeaderString(X_TOTAL_COUNT));
+        assertTrue(total == target("myentity").request().get().readEntity(new GenericType<List<MyEntity>>() {
+        }).size());
+        final List<MyEntity> page = response.readEntity(new GenericType<List<MyEntity>>() {
+        });
+        assertTrue(page.size() == 3);
+        assertTrue(page.stream().map(MyEntity::getId).distinct().count() == 3);
+        for (int i = 1; i < page.size(); i++) {
+            assertTrue(page.get(i - 1).getHometown().compareTo(page.get(i).getHometown()) > 0);
+        }
+
+        saved.forEach(e -> wt.path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testEntityGraph() {
+        final WebTarget wt = target("myentity");
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("graph " + i);
+            me.setStrings(new HashSet<>(Arrays.asList("a" + i, "b" + i)));
+            toSave.add(me);
+        }
+        final List<MyEntity> saved = wt.request().post(Entity.json(toSave), new GenericType<List<MyEntity>>() {
+        });
+
+        // the number of statements for a list does not grow with the size of the page
+        final WebTarget graph = target("graph").queryParam(COUNT_STRATEGY, "none");
+        final long small = StatementCounter.count(() -> {
+            final List<MyEntity> page = graph.queryParam(COUNT, 2).request().get(new GenericType<List<MyEntity>>() {
+            });
+            assertTrue(page.size() == 2 && page.stream().allMatch(e -> e.getStrings().size() == 2));
+        });
+        final long large = StatementCounter.count(() -> {
+            final List<MyEntity> page = graph.queryParam(COUNT, 40).request().get(new GenericType<List<MyEntity>>() {
+            });
+            assertTrue(page.size() == 40 && page.stream().allMatch(e -> e.getStrings().size() == 2));
+        });
+        assertTrue(small == large);
+
+        // the same holds for pages read with a cursor
+        final WebTarget cursorGraph = graph.queryParam(CURSOR, "").queryParam(SORT, "A|hometown");
+        final long smallCursor = StatementCounter.count(() -> {
+            final List<MyEntity> page = cursorGraph.queryParam(COUNT, 2).request()
+                    .get(new GenericType<List<MyEntity>>() {
+                    });
+            assertTrue(page.size() == 2 && page.stream().allMatch(e -> e.getStrings().size() == 2));
+        });
+        final long largeCursor = StatementCounter.count(() -> {
+            final List<MyEntity> page = cursorGraph.queryParam(COUNT, 40).request()
+                    .get(new GenericType<List<MyEntity>>() {
+                    });
+            assertTrue(page.size() == 40 && page.stream().allMatch(e -> e.getStrings().size() == 2));
+            for (int i = 1; i < page.size(); i++) {
+                assertTrue(page.get(i - 1).getHometown().compareTo(page.get(i).getHometown()) < 0);
+            }
+        });
+        assertTrue(smallCursor == largeCursor);
+
+        // a single entity is fetched with its collection in one statement
+        final MyEntity first = saved.get(0);
+        assertTrue(StatementCounter.count(() ->
+                assertTrue(graph.path(first.getId().toString()).request().get(MyEntity.class).getStrings().size() == 2)
+        ) == 1);
+
+        saved.forEach(e -> wt.path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testBatchedSave() {
+        final WebTarget wt = target("features");
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("batched " + i);
+            me.setStrings(new HashSet<>(Collections.singletonList("s" + i)));
+            toSave.add(me);
+        }
+
+        // new entities and their collections are inserted in batches rather than one statement per row
+        final List<List<MyEntity>> saved = new ArrayList<>();
+        assertTrue(StatementCounter.count(() ->
+                saved.add(wt.request().post(Entity.json(toSave), new GenericType<List<MyEntity>>() {
+                }))
+        ) < 20);
+        assertTrue(saved.get(0).size() == 100);
+        assertTrue(saved.get(0).stream().allMatch(e -> e.getId() != null && e.getStrings().size() == 1));
+
+        saved.get(0).forEach(e -> wt.path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testReturnMerged() {
+        final WebTarget wt = target("merged");
+        final MyEntity me = new MyEntity();
+        me.setHometown("merged");
+        final MyEntity created = wt.request().post(Entity.json(Collections.singletonList(me)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+        assertTrue(created.getId() != null && created.getVersion() == 0 && created.getCreated() != null);
+
+        // the version of the merged entity is incremented by the flush
+        created.setHometown("merged again");
+        final MyEntity updated = wt.request().post(Entity.json(Collections.singletonList(created)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+        assertTrue(updated.getVersion() == 1 && updated.getHometown().equals("merged again"));
+
+        // minimal responses only reference the saved entities
+        final Response minimal = target("myentity").request().header("Prefer", "return=minimal")
+                .post(Entity.json(Collections.singletonList(updated)));
+        assertTrue(minimal.getStatus() == 200);
+        assertTrue("return=minimal".equals(minimal.getHeaderString("Preference-Applied")));
+        final List<Map<String, Object>> references = minimal.readEntity(new GenericType<List<Map<String, Object>>>() {
+        });
+        assertTrue(references.size() == 1);
+        assertTrue(references.get(0).keySet().equals(new HashSet<>(Arrays.asList("id", "version"))));
+        assertTrue(updated.getId().toString().equals(references.get(0).get("id")));
+        assertTrue(((Number) references.get(0).get("version")).longValue() == 2);
+
+        assertTrue(wt.path(updated.getId().toString()).request().delete().getStatus() == 204);
+    }
+
+    @Test
+    public void testBulkDelete() {
+        final WebTarget wt = target("bulk");
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown((i == 0 ? "bulk keep " : "bulk ") + i);
+            me.setStrings(new HashSet<>(Collections.singletonList("s" + i)));
+            toSave.add(me);
+        }
+        final List<MyEntity> saved = target("myentity").request().post(Entity.json(toSave),
+                new GenericType<List<MyEntity>>() {
+                });
+        assertTrue(saved.size() == 10);
+
+        // nothing is deleted while any of the matching entities cannot be deleted
+        assertTrue(wt.request().delete().getStatus() == 403);
+        assertTrue(wt.request().get(new GenericType<List<MyEntity>>() {
+        }).size() == 10);
+
+        saved.stream().filter(e -> e.getHometown().startsWith("bulk keep"))
+                .forEach(e -> target("myentity").path(e.getId().toString()).request().delete());
+
+        // the entities are removed along with their collections
+        final Response deleted = wt.request().delete();
+        assertTrue(deleted.getStatus() == 204);
+        assertTrue("9".equals(deleted.getHeaderString("X-Deleted-Count")));
+        assertTrue(wt.request().get(new GenericType<List<MyEntity>>() {
+        }).isEmpty());
+
+        // resources without a predicate authorize each entity
+        final MyEntity denied = new MyEntity();
+        denied.setHometown("bulk denied");
+        final MyEntity savedDenied = target("myentity").request().post(Entity.json(Collections.singletonList(denied)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+        assertTrue(target("bulkdenied").request().delete().getStatus() == 403);
+        assertTrue(target("myentity").path(savedDenied.getId().toString()).request().delete().getStatus() == 204);
+    }
+
+    @Test
+    public void testAsync() {
+        final WebTarget wt = target("async");
+        final MyEntity me = new MyEntity();
+        me.setHometown("async");
+        me.setStrings(new HashSet<>(Arrays.asList("a", "b")));
+
+        // the entity manager of the request is used on the executor threads
+        final MyEntity saved = wt.request().post(Entity.json(Collections.singletonList(me)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+        assertTrue(saved.getId() != null && saved.getStrings().size() == 2);
+        assertTrue(wt.path(saved.getId().toString()).request().get(MyEntity.class).getHometown().equals("async"));
+        assertTrue(wt.request().get(new GenericType<List<MyEntity>>() {
+        }).stream().anyMatch(e -> e.getId().equals(saved.getId())));
+        assertTrue(!AsyncEntityResource.THREADS.isEmpty() &&
+                AsyncEntityResource.THREADS.stream().noneMatch(name -> name.startsWith("grizzly")));
+
+        // requests that take too long fail without waiting for the work to complete
+        final long start = System.currentTimeMillis();
+        assertTrue(target("slow").request().get().getStatus() == 503);
+        assertTrue(System.currentTimeMillis() - start < 500);
+        assertTrue(target("slow").path(saved.getId().toString()).request().get().getStatus() == 503);
+
+        // writes do not time out, since they would still commit after the client was told they failed
+        final MyEntity slow = new MyEntity();
+        slow.setHometown("slow " + UUID.randomUUID());
+        final Response slowSave = target("slow").request().post(Entity.json(Collections.singletonList(slow)));
+        assertTrue(slowSave.getStatus() == 200);
+        final MyEntity slowSaved = slowSave.readEntity(new GenericType<List<MyEntity>>() {
+        }).get(0);
+        assertTrue(wt.path(slowSaved.getId().toString()).request().delete().getStatus() == 204);
+
+        assertTrue(wt.path(saved.getId().toString()).request().delete().getStatus() == 204);
+    }
+
+    private static Response patch(final WebTarget wt, final String patch) {
+        // the default connector only sends PATCH requests with the workaround
+        return wt.request().property(HttpUrlConnectorProvider.SET_METHOD_WORKAROUND, true)
+                .method("PATCH", Entity.entity(patch.replace('\'', '"'), JsonMergePatch.MEDIA_TYPE));
+    }
+
+    @Test
+    public void testPatch() {
+        final WebTarget wt = target("myentity");
+        final MyEntity me = new MyEntity();
+        me.setHometown("patched");
+        me.setValidated(1);
+        me.setStrings(new HashSet<>(Arrays.asList("a", "b")));
+        final MyEntity created = wt.request().post(Entity.json(Collections.singletonList(me)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+        final WebTarget single = wt.path(created.getId().toString());
+
+        // only the patched column is written
+        final List<Response> responses = new ArrayList<>();
+        final List<String> statements = StatementCounter.capture(() ->
+                responses.add(patch(single, "{'validated':2}")));
+        assertTrue(responses.get(0).getStatus() == 200);
+        final MyEntity patched = responses.get(0).readEntity(MyEntity.class);
+        assertTrue(patched.getValidated() == 2 && patched.getVersion() == 1);
+        assertTrue(patched.getHometown().equals("patched") && patched.getStrings().size() == 2);
+        final List<String> updates = statements.stream().filter(sql -> sql.startsWith("update"))
+                .collect(Collectors.toList());
+        assertTrue(updates.size() == 1 && updates.get(0).contains("validated") &&
+                !updates.get(0).contains("hometown"));
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("EntityStrings") &&
+                (sql.startsWith("delete") || sql.startsWith("insert"))));
+
+        // null removes a value, and the hooks and version check of a save apply
+        assertTrue(patch(single, "{'validated':null}").readEntity(MyEntity.class).getValidated() == null);
+        assertTrue(patch(single, "{'hometown':'ABC'}").getStatus() == 403);
+        assertTrue(patch(single, "{'version':0,'validated':3}").getStatus() == 409);
+        assertTrue(patch(single, "{'id':'" + UUID.randomUUID() + "'}").getStatus() == 400);
+        assertTrue(patch(wt.path(UUID.randomUUID().toString()), "{'validated':3}").getStatus() == 404);
+
+        // patches for several entities identify them by ID
+        final Response bulk = patch(wt, "[{'id':'" + created.getId() + "','version':2,'strings':['c']}]");
+        assertTrue(bulk.getStatus() == 200);
+        final List<MyEntity> bulkPatched = bulk.readEntity(new GenericType<List<MyEntity>>() {
+        });
+        assertTrue(bulkPatched.size() == 1 && bulkPatched.get(0).getStrings().equals(Collections.singleton("c")));
+        assertTrue(patch(wt, "[{'validated':3}]").getStatus() == 400);
+
+        assertTrue(single.request().delete().getStatus() == 204);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImport() {
+        final MyEntity stale = new MyEntity();
+        stale.setHometown("stale import");
+        final MyEntity existing = target("myentity").request().post(Entity.json(Collections.singletonList(stale)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+
+        final StringBuilder body = new StringBuilder();
+        for (int line = 1; line <= 26; line++) {
+            if (line == 20) {
+                body.append("{\"id\":\"").append(existing.getId()).append("\",\"version\":")
+                        .append(existing.getVersion() + 1).append(",\"hometown\":\"stale import\"}");
+            } else if (line == 3) {
+                body.append("{not json");
+            } else if (line == 7) {
+                body.append("{\"hometown\":\"ABC\"}");
+            } else if (line == 12) {
+                body.append("{\"hometown\":\"\"}");
+            } else if (line != 15) {
+                body.append("{\"hometown\":\"import ").append(line).append("\"}");
+            }
+            body.append("\n");
+        }
+
+        // lines that cannot be parsed, merged or validated are reported without stopping the import
+        final Response response = target("imported").request()
+                .post(Entity.entity(body.toString(), EntityResource.APPLICATION_NDJSON));
+        assertTrue(response.getStatus() == 200);
+        final Map<String, Object> report = response.readEntity(new GenericType<Map<String, Object>>() {
+        });
+        assertTrue(((Number) report.get("imported")).intValue() == 21);
+        assertTrue(((Number) report.get("failed")).intValue() == 4);
+        final List<Map<String, Object>> errors = (List<Map<String, Object>>) report.get("errors");
+        assertTrue(errors.stream().map(error -> ((Number) error.get("line")).intValue()).collect(Collectors.toList())
+                .equals(Arrays.asList(3, 7, 12, 20)));
+        assertTrue(errors.stream().allMatch(error -> !((List<?>) error.get("requestErrors")).isEmpty()));
+
+        // a new entity that cannot be saved is identified by its line number
+        assertTrue(((List<Map<String, Object>>) errors.get(1).get("requestErrors")).stream()
+                .anyMatch(error -> ((String) error.get("message")).endsWith("#7")));
+
+        // the version check of a versioned resource is applied to imported lines as it is to saves
+        assertTrue(((List<Map<String, Object>>) errors.get(3).get("requestErrors")).stream()
+                .allMatch(error -> "version".equals(error.get("attribute"))));
+
+        final List<MyEntity> imported = target("myentity").request().get(new GenericType<List<MyEntity>>() {
+        }).stream().filter(e -> e.getHometown().startsWith("import ")).collect(Collectors.toList());
+        assertTrue(imported.size() == 21);
+
+        imported.forEach(e -> target("myentity").path(e.getId().toString()).request().delete());
+        target("myentity").path(existing.getId().toString()).request().delete();
+    }
+
+    @Test
+    public void testExport() {
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("export, " + i);
+            me.setValidated(i);
+            toSave.add(me);
+        }
+        final List<MyEntity> saved = target("myentity").request().post(Entity.json(toSave),
+                new GenericType<List<MyEntity>>() {
+                });
+
+        // exports are not allowed unless the resource sets an export chunk size
+        assertTrue(target("myentity").request(EntityResource.APPLICATION_NDJSON).get().getStatus() == 406);
+
+        // one entity per line in the requested order, after beforeSend
+        final WebTarget wt = target("exported").queryParam(SORT, "D|validated");
+        final Response ndjson = wt.request(EntityResource.APPLICATION_NDJSON).get();
+        assertTrue(ndjson.getStatus() == 200);
+        assertTrue(ndjson.getMediaType().toString().startsWith(EntityResource.APPLICATION_NDJSON));
+        final String[] lines = ndjson.readEntity(String.class).split("\n");
+        assertTrue(lines.length == 7);
+        assertTrue(lines[0].contains("\"hometown\":\"EXPORT, 6\"") && lines[6].contains("\"validated\":0"));
+        assertTrue(!lines[0].contains("strings"));
+
+        // csv has a header row, and quotes values with commas
+        final Response csv = wt.queryParam(FIELDS, "hometown,validated").request("text/csv").get();
+        assertTrue(csv.getStatus() == 200);
+        final String[] rows = csv.readEntity(String.class).split("\r\n");
+        assertTrue(rows.length == 8);
+        assertTrue(rows[0].equals("id,hometown,validated"));
+        assertTrue(rows[1].endsWith(",\"EXPORT, 6\",6"));
+
+        // lists are still json by default
+        assertTrue(target("exported").request().get(new GenericType<List<MyEntity>>() {
+        }).size() == 7);
+
+        saved.forEach(e -> target("myentity").path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testMultiGet() {
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final MyEntity me = new MyEntity();
+            // the last entity does not match the predicates of the exported resource
+            me.setHometown(i < 4 ? "export multi " + i : "multi " + i);
+            toSave.add(me);
+        }
+        final List<MyEntity> saved = target("myentity").request().post(Entity.json(toSave),
+                new GenericType<List<MyEntity>>() {
+                });
+
+        final Map<String, UUID> byHometown = saved.stream()
+                .collect(Collectors.toMap(MyEntity::getHometown, MyEntity::getId));
+        final UUID unknown = UUID.randomUUID();
+        final List<UUID> ids = Arrays.asList(byHometown.get("export multi 2"), unknown,
+                byHometown.get("export multi 0"), byHometown.get("multi 4"), byHometown.get("export multi 1"),
+                byHometown.get("export multi 2"), byHometown.get("export multi 3"));
+
+        final List<MultiGetResult<MyEntity>> results = new ArrayList<>();
+        final List<String> statements = StatementCounter.capture(() ->
+                results.add(target("exported").path("_get").request().post(Entity.json(ids),
+                        new GenericType<MultiGetResult<MyEntity>>() {
+                        })));
+        final MultiGetResult<MyEntity> result = results.get(0);
+
+        // found in the requested order, each once, after beforeSend
+        assertTrue(result.getFound().stream().map(MyEntity::getHometown).collect(Collectors.toList())
+                .equals(Arrays.asList("EXPORT MULTI 2", "EXPORT MULTI 0", "EXPORT MULTI 1", "EXPORT MULTI 3")));
+        assertTrue(result.getMissing().equals(Arrays.asList(unknown, byHometown.get("multi 4"))));
+        // all the IDs are loaded with a single query
+        assertTrue(statements.stream().filter(sql -> sql.contains("from MyEntity")).count() == 1);
+
+        assertTrue(target("exported").path("_get").request()
+                .post(Entity.json(Collections.emptyList())).getStatus() == 400);
+
+        saved.forEach(e -> target("myentity").path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testSetBasedAuthorization() {
+        final List<MyEntity> toSave = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown(i < 3 ? "authorized " + i : "authorized keep");
+            toSave.add(me);
+        }
+
+        // the whole save is checked at once
+        final int checks = AuthorizedEntityResource.MERGE_CHECKS.get();
+        final List<MyEntity> saved = target("authorized").request().post(Entity.json(toSave),
+                new GenericType<List<MyEntity>>() {
+                });
+        assertTrue(saved.size() == 4);
+        assertTrue(AuthorizedEntityResource.MERGE_CHECKS.get() == checks + 1);
+
+        final MyEntity denied = new MyEntity();
+        denied.setHometown("authorized deny");
+        final Response forbidden = target("authorized").request()
+                .post(Entity.json(Arrays.asList(saved.get(0), denied)));
+        assertTrue(forbidden.getStatus() == 403);
+        assertTrue(forbidden.readEntity(ErrorResponse.class).getRequestErrors().size() == 1);
+
+        // lists are authorized by the predicate rather than one entity at a time
+        assertTrue(target("authorized").request().delete().getStatus() == 403);
+        final MyEntity keep = saved.stream().filter(e -> e.getHometown().equals("authorized keep")).findFirst()
+                .orElseThrow(IllegalStateException::new);
+        assertTrue(target("myentity").path(keep.getId().toString()).request().delete().getStatus() == 204);
+        final Response deleted = target("authorized").request().delete();
+        assertTrue(deleted.getStatus() == 204);
+        assertTrue("3".equals(deleted.getHeaderString("X-Deleted-Count")));
+    }
+
+    @Test
+    public void testIfMatch() {
+        final Note note = new Note();
+        note.setText("if match");
+        final Note keep = new Note();
+        keep.setText("keep if match");
+        // saves respond in no particular order
+        final Map<String, UUID> notes = target("notes").request().post(Entity.json(Arrays.asList(note, keep)),
+                new GenericType<List<Note>>() {
+                }).stream().collect(Collectors.toMap(Note::getText, Note::getId));
+        final WebTarget saved = target("notes").path(notes.get("if match").toString());
+        final String firstTag = saved.request().get().getEntityTag().toString();
+
+        // patches must match the tag of the stored entity
+        final String staleTag = firstTag.replace("-0\"", "-5\"");
+        final Response stalePatch = saved.request().header(HttpHeaders.IF_MATCH, staleTag)
+                .property(HttpUrlConnectorProvider.SET_METHOD_WORKAROUND, true)
+                .method("PATCH", Entity.entity("{\"text\":\"if match patched\"}", JsonMergePatch.MEDIA_TYPE));
+        assertTrue(stalePatch.getStatus() == 409);
+        final Response patched = saved.request().header(HttpHeaders.IF_MATCH, firstTag)
+                .property(HttpUrlConnectorProvider.SET_METHOD_WORKAROUND, true)
+                .method("PATCH", Entity.entity("{\"text\":\"if match patched\"}", JsonMergePatch.MEDIA_TYPE));
+        assertTrue(patched.getStatus() == 200);
+        final String secondTag = patched.readEntity(Note.class).getVersion() == 1 ?
+                saved.request().get().getEntityTag().toString() : null;
+        assertTrue(secondTag != null && !secondTag.equals(firstTag));
+
+        // deletes with a stale tag are rejected without loading the entity
+        final List<Response> responses = new ArrayList<>();
+        final List<String> statements = StatementCounter.capture(() ->
+                responses.add(saved.request().header(HttpHeaders.IF_MATCH, firstTag).delete()));
+        assertTrue(responses.get(0).getStatus() == 409);
+        // only the version is selected, and nothing is deleted
+        assertTrue(statements.size() == 1 && !statements.get(0).contains("text as"));
+        assertTrue(saved.request().header(HttpHeaders.IF_MATCH, secondTag).delete().getStatus() == 204);
+        assertTrue(saved.request().get().getStatus() == 404);
+
+        // the tag of another entity never matches, and authorization still applies
+        final WebTarget kept = target("notes").path(notes.get("keep if match").toString());
+        assertTrue(kept.request().header(HttpHeaders.IF_MATCH, firstTag).delete().getStatus() == 409);
+        assertTrue(kept.request().header(HttpHeaders.IF_MATCH, kept.request().get().getEntityTag().toString())
+                .delete().getStatus() == 403);
+        assertTrue(kept.request().get().getStatus() == 200);
+
+        // any stored entity matches *
+        assertTrue(kept.request().header(HttpHeaders.IF_MATCH, "*")
+                .property(HttpUrlConnectorProvider.SET_METHOD_WORKAROUND, true)
+                .method("PATCH", Entity.entity("{\"text\":\"keep if match *\"}", JsonMergePatch.MEDIA_TYPE))
+                .getStatus() == 200);
+
+        // entities with collections are loaded and checked against the tag before they are removed
+        final MyEntity me = new MyEntity();
+        me.setHometown("if match");
+        final WebTarget entity = target("myentity").path(target("myentity").request()
+                .post(Entity.json(Collections.singletonList(me)), new GenericType<List<MyEntity>>() {
+                }).get(0).getId().toString());
+        final String entityTag = entity.request().get().getEntityTag().toString();
+        assertTrue(entity.request().header(HttpHeaders.IF_MATCH, entityTag.replace("-0\"", "-1\""))
+                .delete().getStatus() == 409);
+        assertTrue(entity.request().header(HttpHeaders.IF_MATCH, entityTag).delete().getStatus() == 204);
+    }
+
+    @Test
+    public void testReadReplica() {
+        final MyEntity onReplica = new MyEntity();
+        onReplica.setHometown("replica only");
+        final EntityManager replicaEm = replica.provide();
+        try {
+            TXHelper.withinTransaction(replicaEm, () -> replicaEm.persist(onReplica));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            // lists and single entities are read from the replica
+            assertTrue(target("replicated").request().get(new GenericType<List<MyEntity>>() {
+            }).stream().anyMatch(e -> e.getHometown().equals("replica only")));
+            assertTrue(target("replicated").path(onReplica.getId().toString()).request().get().getStatus() == 200);
+            assertTrue(target("myentity").path(onReplica.getId().toString()).request().get().getStatus() == 404);
+
+            // writes go to the primary, and the client that wrote reads from it until the window ends
+            final MyEntity me = new MyEntity();
+            me.setHometown("replica written");
+            final Response saved = target("replicated").request().post(Entity.json(Collections.singletonList(me)));
+            assertTrue(saved.getStatus() == 200);
+            final NewCookie readPrimary = saved.getCookies().get(EntityResource.READ_PRIMARY_UNTIL);
+            assertTrue(readPrimary != null && readPrimary.getMaxAge() == 60);
+            final WebTarget written = target("replicated").path(saved.readEntity(new GenericType<List<MyEntity>>() {
+            }).get(0).getId().toString());
+
+            assertTrue(written.request().get().getStatus() == 404);
+            assertTrue(written.request().cookie(readPrimary).get().getStatus() == 200);
+            assertTrue(target("replicated").path(onReplica.getId().toString()).request().cookie(readPrimary)
+                    .get().getStatus() == 404);
+
+            // an expired window reads from the replica again
+            final Cookie expired = new Cookie(EntityResource.READ_PRIMARY_UNTIL,
+                    Long.toString(System.currentTimeMillis() - 1));
+            assertTrue(written.request().cookie(expired).get().getStatus() == 404);
+
+            assertTrue(written.request().delete().getStatus() == 204);
+        } finally {
+            try {
+                TXHelper.withinTransaction(replicaEm, () -> replicaEm.remove(replicaEm.merge(onReplica)));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            replica.dispose(replicaEm);
+        }
+    }
+
+    @Test
+    public void testPatchBeforeMerge() {
+        final Note note = new Note();
+        note.setText("before merge");
+        // the revision is only written to JSON, so it is read from the JSON of the responses
+        final Map<String, Object> saved = target("notes").request().post(Entity.json(Collections.singletonList(note)),
+                new GenericType<List<Map<String, Object>>>() {
+                }).get(0);
+        assertTrue("revision of before merge".equals(saved.get("revision")));
+        final WebTarget single = target("notes").path(saved.get("id").toString());
+
+        // properties set by the hook are written even though they are not read from the patched JSON
+        final Response patched = single.request()
+                .property(HttpUrlConnectorProvider.SET_METHOD_WORKAROUND, true)
+                .method("PATCH", Entity.entity("{\"text\":\"before merge patched\"}", JsonMergePatch.MEDIA_TYPE));
+        assertTrue(patched.getStatus() == 200);
+        assertTrue("revision of before merge patched".equals(patched.readEntity(
+                new GenericType<Map<String, Object>>() {
+                }).get("revision")));
+        assertTrue("revision of before merge patched".equals(single.request().get(
+                new GenericType<Map<String, Object>>() {
+                }).get("revision")));
+    }
+
+    @Test
+    public void testPerRequestConfiguration() {
+        final List<MyEntity> list = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("admin " + UUID.randomUUID());
+            list.add(me);
+        }
+        final List<MyEntity> saved = target("myentity").request().post(Entity.json(list),
+                new GenericType<List<MyEntity>>() {
+                });
+
+        // the same query string is parsed with the configuration of each request
+        final WebTarget wt = target("admin").queryParam(COUNT, 5);
+        assertTrue(wt.request().header("X-Admin", "true").get(new GenericType<List<MyEntity>>() {
+        }).size() == 5);
+        assertTrue(wt.request().get(new GenericType<List<MyEntity>>() {
+        }).size() == 2);
+
+        saved.forEach(e -> target("myentity").path(e.getId().toString()).request().delete());
+    }
+
     @Test
     public void testEntityResource() {
         final WebTarget wt = target("myentity");
@@ -309,4 +1481,130 @@ public class EntityResourceTest extends BaseTest {
         assertTrue(afterdelete.size() == 0);
     }
 
+    @Test
+    public void testCursorPagination() {
+        final WebTarget wt = target("myentity");
+
+        final List<MyEntity> list = new ArrayList<>(25);
+        for (int i = 0; i < 25; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("cursor " + (i % 5) + " " + UUID.randomUUID());
+            me.setValidated(i % 3);
+            list.add(me);
+        }
+        final List<MyEntity> saved = wt.request().post(Entity.json(list), new GenericType<List<MyEntity>>() {
+        });
+
+        final List<MyEntity> seen = new ArrayList<>();
+        String cursor = "";
+        long totalCount = -1;
+        do {
+            final Response page = wt.queryParam(CURSOR, cursor).queryParam(COUNT, 7)
+                    .queryParam(SORT, "D|validated").queryParam(SORT, "A|hometown")
+                    .request().get();
+            assertTrue(page.getStatus() == 200);
+            totalCount = Long.parseLong(page.getHeaderString(X_TOTAL_COUNT));
+            seen.addAll(page.readEntity(new GenericType<List<MyEntity>>() {
+            }));
+            cursor = page.getHeaderString(X_NEXT_CURSOR);
+        } while (cursor != null);
+
+        // every row is seen exactly once, in the requested order
+        assertTrue(seen.size() == totalCount);
+        assertTrue(seen.stream().map(MyEntity::getId).distinct().count() == totalCount);
+        for (int i = 1; i < seen.size(); i++) {
+            final MyEntity prev = seen.get(i - 1), next = seen.get(i);
+            final int prevValidated = prev.getValidated() == null ? Integer.MIN_VALUE : prev.getValidated();
+            final int nextValidated = next.getValidated() == null ? Integer.MIN_VALUE : next.getValidated();
+            assertTrue(prevValidated > nextValidated ||
+                    (prevValidated == nextValidated && prev.getHometown().compareTo(next.getHometown()) < 0));
+        }
+
+        assertTrue(wt.queryParam(CURSOR, "garbage").request().get().getStatus() == 400);
+
+        saved.forEach(e -> wt.path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testStreamedList() {
+        final List<MyEntity> list = new ArrayList<>(30);
+        for (int i = 0; i < 30; i++) {
+            final MyEntity me = new MyEntity();
+            me.setHometown("streamed " + UUID.randomUUID());
+            me.setStrings(new HashSet<>(Collections.singletonList("s" + i)));
+            list.add(me);
+        }
+        final List<MyEntity> saved = target("myentity").request().post(Entity.json(list), new GenericType<List<MyEntity>>() {
+        });
+
+        final Response r = target("streamed").request().get();
+        assertTrue(r.getStatus() == 200);
+        final List<MyEntity> streamed = r.readEntity(new GenericType<List<MyEntity>>() {
+        });
+        assertTrue(streamed.size() == Long.parseLong(r.getHeaderString(X_TOTAL_COUNT)));
+        assertTrue(streamed.size() >= 30);
+        assertTrue(streamed.stream().filter(e -> e.getHometown().startsWith("streamed "))
+                .allMatch(e -> e.getStrings().size() == 1));
+
+        saved.forEach(e -> target("myentity").path(e.getId().toString()).request().delete());
+    }
+
+    @Test
+    public void testCountStrategies() {
+        final WebTarget wt = target("myentity");
+        final Function<String, String> totalCount = strategy ->
+                wt.queryParam(COUNT_STRATEGY, strategy).request().get().getHeaderString(X_TOTAL_COUNT);
+
+        assertTrue(totalCount.apply("none") == null);
+        // H2 has no window functions so this falls back to a separate count query
+        assertTrue(Long.parseLong(totalCount.apply("window")) >= 0);
+        assertTrue(Long.parseLong(totalCount.apply("estimated")) >= 0);
+
+        final String cached = totalCount.apply("cached");
+        final MyEntity me = new MyEntity();
+        me.setHometown("counted " + UUID.randomUUID());
+        final MyEntity saved = wt.request().post(Entity.json(Collections.singletonList(me)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+
+        // the cached count is reused, the exact count sees the new entity
+        assertTrue(totalCount.apply("cached").equals(cached));
+        final long exact = Long.parseLong(totalCount.apply("exact"));
+        assertTrue(exact == Long.parseLong(cached) + 1);
+
+        final Response head = wt.request().head();
+        assertTrue(head.getStatus() == 200);
+        assertTrue(Long.parseLong(head.getHeaderString(X_TOTAL_COUNT)) == exact);
+        assertTrue(!head.hasEntity());
+
+        wt.path(saved.getId().toString()).request().delete();
+    }
+
+    @Test
+    public void testParallelCount() {
+        final MyEntity me = new MyEntity();
+        me.setHometown("parallel " + UUID.randomUUID());
+        final MyEntity saved = target("myentity").request().post(Entity.json(Collections.singletonList(me)),
+                new GenericType<List<MyEntity>>() {
+                }).get(0);
+
+        final Response sequential = target("myentity").queryParam(COUNT, 1).request().get();
+        final Response parallel = target("parallel").queryParam(COUNT, 1).request().get();
+        assertTrue(parallel.getStatus() == 200);
+        assertTrue(parallel.readEntity(new GenericType<List<MyEntity>>() {
+        }).size() == 1);
+        assertTrue(parallel.getHeaderString(X_TOTAL_COUNT).equals(sequential.getHeaderString(X_TOTAL_COUNT)));
+
+        target("myentity").path(saved.getId().toString()).request().delete();
+    }
+
+    @Test
+    public void testSortPaths() {
+        final WebTarget wt = target("myentity");
+
+        // paths that are not basic attributes of the entity are ignored
+        assertTrue(wt.queryParam(SORT, "A|nope").request().get().getStatus() == 200);
+        assertTrue(wt.queryParam(SORT, "A|strings").request().get().getStatus() == 200);
+        assertTrue(wt.queryParam(SORT, "D|hometown").queryParam(SORT, "A|created").request().get().getStatus() == 200);
+    }
 }
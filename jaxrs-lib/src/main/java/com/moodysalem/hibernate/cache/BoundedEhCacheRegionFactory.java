@@ -0,0 +1,52 @@
+package com.moodysalem.hibernate.cache;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.ehcache.EhCacheRegionFactory;
+
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * An in process second level cache that needs no configuration file. Every region holds at most a fixed number of
+ * entries, which expire a fixed time after they are cached
+ */
+public class BoundedEhCacheRegionFactory extends EhCacheRegionFactory {
+    private static final long serialVersionUID = 1L;
+
+    // the maximum number of entries in each region
+    public static final String MAX_ENTRIES = "jaxrs.cache.max_entries";
+    // the number of seconds an entry lives in a region
+    public static final String TTL_SECONDS = "jaxrs.cache.ttl_seconds";
+    // the name of the cache manager, which must be unique in the JVM
+    public static final String NAME = "jaxrs.cache.name";
+
+    private static final int DEFAULT_MAX_ENTRIES = 10000;
+    private static final long DEFAULT_TTL_SECONDS = 300;
+
+    @Override
+    public void start(final SessionFactoryOptions settings, final Properties properties) throws CacheException {
+        this.settings = settings;
+        if (manager != null) {
+            return;
+        }
+
+        final String maxEntries = properties.getProperty(MAX_ENTRIES, Integer.toString(DEFAULT_MAX_ENTRIES));
+        final String ttlSeconds = properties.getProperty(TTL_SECONDS, Long.toString(DEFAULT_TTL_SECONDS));
+
+        final CacheConfiguration regionConfiguration = new CacheConfiguration()
+                .maxEntriesLocalHeap(Integer.parseInt(maxEntries))
+                .timeToLiveSeconds(Long.parseLong(ttlSeconds));
+
+        final String name = properties.getProperty(NAME, "jaxrs-cache");
+        manager = new CacheManager(
+                new Configuration()
+                        .name(name + "-" + UUID.randomUUID())
+                        .updateCheck(false)
+                        .defaultCache(regionConfiguration)
+        );
+    }
+}
@@ -0,0 +1,41 @@
+package com.moodysalem.hibernate.dialect;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.spi.MetadataBuilderInitializer;
+import org.hibernate.dialect.*;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.StandardBasicTypes;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Registers the window functions used by the library with every persistence unit, so that they can be called from
+ * criteria queries with {@link javax.persistence.criteria.CriteriaBuilder#function}
+ */
+public class WindowFunctions implements MetadataBuilderInitializer {
+    // the number of rows in the result, before any limit or offset is applied
+    public static final String COUNT_OVER = "jaxrs_count_over";
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder, StandardServiceRegistry serviceRegistry) {
+        metadataBuilder.applySqlFunction(COUNT_OVER, new SQLFunctionTemplate(StandardBasicTypes.LONG, "count(*) over ()"));
+    }
+
+    /**
+     * Whether the database of an entity manager supports window functions
+     *
+     * @param em entity manager
+     * @return true if the window functions can be used in queries
+     */
+    public static boolean isSupported(final EntityManager em) {
+        final Dialect dialect = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+
+        return dialect instanceof PostgreSQL82Dialect ||
+                dialect instanceof Oracle8iDialect ||
+                dialect instanceof SQLServer2005Dialect ||
+                dialect instanceof DB2Dialect;
+    }
+}
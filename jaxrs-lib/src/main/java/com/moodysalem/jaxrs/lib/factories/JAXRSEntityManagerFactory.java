@@ -1,21 +1,31 @@
 package com.moodysalem.jaxrs.lib.factories;
 
+import com.moodysalem.hibernate.cache.BoundedEhCacheRegionFactory;
 import liquibase.Liquibase;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.LiquibaseException;
 import liquibase.resource.ClassLoaderResourceAccessor;
 import org.glassfish.hk2.api.Factory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.persistence.SharedCacheMode;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -62,11 +72,17 @@ public class JAXRSEntityManagerFactory implements Factory<EntityManager> {
         private String name, url, user, persistenceUnit, changelogFile, context, password = "";
         private Properties additionalProperties;
         private boolean showSql;
+        private int parallelQueryThreads, jdbcBatchSize;
+        private Integer cacheMaxEntries;
+        private Long cacheTtlSeconds;
+        private final List<String> readReplicaUrls = new ArrayList<>();
+        private long readYourWritesMillis;
 
         public JAXRSEntityManagerFactory build() {
             return new JAXRSEntityManagerFactory(
                     name, url, user, password, persistenceUnit, changelogFile, showSql,
-                    context, additionalProperties
+                    context, additionalProperties, parallelQueryThreads, cacheMaxEntries, cacheTtlSeconds,
+                    jdbcBatchSize, readReplicaUrls, readYourWritesMillis
             );
         }
 
@@ -116,18 +132,78 @@ public class JAXRSEntityManagerFactory implements Factory<EntityManager> {
             this.password = password;
             return this;
         }
+
+        public Builder withParallelQueryThreads(int parallelQueryThreads) {
+            this.parallelQueryThreads = parallelQueryThreads;
+            return this;
+        }
+
+        /**
+         * Send inserts and updates to the database in JDBC batches, ordered so that statements for the same table
+         * are batched together
+         *
+         * @param jdbcBatchSize the maximum number of statements in a batch
+         * @return this builder
+         */
+        public Builder withJdbcBatchSize(int jdbcBatchSize) {
+            this.jdbcBatchSize = jdbcBatchSize;
+            return this;
+        }
+
+        /**
+         * Cache the entities marked {@link javax.persistence.Cacheable} in memory. The cache is provided by the
+         * optional org.hibernate:hibernate-ehcache dependency, which must be added to the application
+         *
+         * @param maxEntries the maximum number of entries cached for each entity or collection
+         * @param ttlSeconds the number of seconds an entry is cached
+         * @return this builder
+         */
+        public Builder withSecondLevelCache(int maxEntries, long ttlSeconds) {
+            this.cacheMaxEntries = maxEntries;
+            this.cacheTtlSeconds = ttlSeconds;
+            return this;
+        }
+
+        /**
+         * Add a read replica of the database, which gets its own connection pool and is used for the read only entity
+         * managers of the factory. Replicas are chosen in turn, use the same user and password as the primary, and
+         * are not migrated or cached
+         *
+         * @param readReplicaUrl the JDBC url of the replica
+         * @return this builder
+         */
+        public Builder withReadReplicaUrl(String readReplicaUrl) {
+            this.readReplicaUrls.add(readReplicaUrl);
+            return this;
+        }
+
+        /**
+         * Read from the primary for some time after a client writes, so that the client sees its own writes even
+         * when the replicas lag behind
+         *
+         * @param readYourWritesMillis how long a client reads from the primary after it writes
+         * @return this builder
+         */
+        public Builder withReadYourWritesWindow(long readYourWritesMillis) {
+            this.readYourWritesMillis = readYourWritesMillis;
+            return this;
+        }
     }
 
 
     /**
      * Create an entity manager factory which is used to provide entity managers to the requests
      */
-    private static EntityManagerFactory createEMF(String url,
+    private static EntityManagerFactory createEMF(String name,
+                                                  String url,
                                                   String user,
                                                   String password,
                                                   String persistenceUnit,
                                                   boolean showSql,
-                                                  Properties additionalProperties) {
+                                                  Properties additionalProperties,
+                                                  Integer cacheMaxEntries,
+                                                  Long cacheTtlSeconds,
+                                                  int jdbcBatchSize) {
         Properties properties = new Properties();
         properties.setProperty("hibernate.connection.url", url);
         properties.setProperty("hibernate.connection.user", user);
@@ -147,6 +223,24 @@ public class JAXRSEntityManagerFactory implements Factory<EntityManager> {
         properties.setProperty("hibernate.c3p0.max_statements", "50");
         properties.setProperty("hibernate.default_batch_fetch_size", "32");
 
+        // batched writes
+        if (jdbcBatchSize > 0) {
+            properties.setProperty("hibernate.jdbc.batch_size", Integer.toString(jdbcBatchSize));
+            properties.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+            properties.setProperty("hibernate.order_inserts", "true");
+            properties.setProperty("hibernate.order_updates", "true");
+        }
+
+        // second level cache for the entities that opt in
+        if (cacheMaxEntries != null && cacheTtlSeconds != null) {
+            properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+            properties.setProperty("hibernate.cache.region.factory_class", BoundedEhCacheRegionFactory.class.getName());
+            properties.setProperty("javax.persistence.sharedCache.mode", SharedCacheMode.ENABLE_SELECTIVE.name());
+            properties.setProperty(BoundedEhCacheRegionFactory.NAME, name);
+            properties.setProperty(BoundedEhCacheRegionFactory.MAX_ENTRIES, Integer.toString(cacheMaxEntries));
+            properties.setProperty(BoundedEhCacheRegionFactory.TTL_SECONDS, Long.toString(cacheTtlSeconds));
+        }
+
         if (additionalProperties != null) {
             properties.putAll(additionalProperties);
         }
@@ -154,15 +248,111 @@ public class JAXRSEntityManagerFactory implements Factory<EntityManager> {
         return Persistence.createEntityManagerFactory(persistenceUnit, properties);
     }
 
+    /**
+     * Create the bounded executor that runs read only queries in parallel with the request thread. When all the
+     * threads are busy and the queue is full, the query runs on the thread that submitted it
+     */
+    private static ExecutorService createQueryExecutor(String name, int threads) {
+        if (threads <= 0) {
+            return null;
+        }
+
+        final AtomicLong threadCount = new AtomicLong(0);
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                runnable -> {
+                    final Thread thread = new Thread(runnable,
+                            String.format("%s-query-%s", name, threadCount.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     private final String name;
     private final EntityManagerFactory _emf;
+    private final ExecutorService queryExecutor;
+    private final List<EntityManagerFactory> replicaEmfs;
+    private final AtomicLong replicaCounter = new AtomicLong(0);
+    private final long readYourWritesMillis;
 
     private JAXRSEntityManagerFactory(String name, String url, String user, String password, String persistenceUnit,
                                       String changelogFile, boolean showSql, String context,
-                                      Properties additionalProperties) {
+                                      Properties additionalProperties, int parallelQueryThreads,
+                                      Integer cacheMaxEntries, Long cacheTtlSeconds, int jdbcBatchSize,
+                                      List<String> readReplicaUrls, long readYourWritesMillis) {
         this.name = name;
         runMigrations(changelogFile, url, user, password, context);
-        _emf = createEMF(url, user, password, persistenceUnit, showSql, additionalProperties);
+        _emf = createEMF(name, url, user, password, persistenceUnit, showSql, additionalProperties,
+                cacheMaxEntries, cacheTtlSeconds, jdbcBatchSize);
+        queryExecutor = createQueryExecutor(name, parallelQueryThreads);
+
+        // writes are never sent to the replicas, and entities cached from them could not be evicted on writes
+        final List<EntityManagerFactory> replicas = new ArrayList<>();
+        for (final String readReplicaUrl : readReplicaUrls) {
+            replicas.add(createEMF(name, readReplicaUrl, user, password, persistenceUnit, showSql,
+                    additionalProperties, null, null, 0));
+        }
+        replicaEmfs = Collections.unmodifiableList(replicas);
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    /**
+     * Create a read only entity manager on the next read replica, or on the primary if the factory was built without
+     * replicas. The caller must close the entity manager
+     *
+     * @return the read only entity manager
+     */
+    public EntityManager createReadOnlyEntityManager() {
+        final EntityManagerFactory emf = replicaEmfs.isEmpty() ? _emf :
+                replicaEmfs.get((int) (replicaCounter.getAndIncrement() % replicaEmfs.size()));
+        final EntityManager em = emf.createEntityManager();
+        final Session session = em.unwrap(Session.class);
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        return em;
+    }
+
+    /**
+     * @return how long a client reads from the primary after it writes, in milliseconds
+     */
+    public long getReadYourWritesMillis() {
+        return readYourWritesMillis;
+    }
+
+    /**
+     * Run some read only work against a short lived entity manager that is closed when the work completes. If the
+     * factory was built with parallel query threads the work runs on one of them, otherwise it runs immediately on
+     * the calling thread
+     *
+     * @param work to do with the entity manager
+     * @param <V>  the result type of the work
+     * @return the result of the work
+     */
+    public <V> CompletableFuture<V> readOnly(Function<EntityManager, V> work) {
+        final Supplier<V> task = () -> {
+            final EntityManager em = _emf.createEntityManager();
+            try {
+                final Session session = em.unwrap(Session.class);
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+                return work.apply(em);
+            } finally {
+                em.close();
+            }
+        };
+
+        if (queryExecutor == null) {
+            final CompletableFuture<V> result = new CompletableFuture<>();
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        return CompletableFuture.supplyAsync(task, queryExecutor);
     }
 
     /**
@@ -25,7 +25,7 @@ public class CORSFilter implements DynamicFeature {
             ACCESS_CONTROL_ALLOW_METHODS = "Access-Control-Allow-Methods",
             ACCESS_CONTROL_ALLOW_HEADERS = "Access-Control-Allow-Headers",
             ACCESS_CONTROL_REQUEST_HEADERS = "Access-Control-Request-Headers",
-            ALL_METHODS = "GET,POST,DELETE,PUT,OPTIONS",
+            ALL_METHODS = "GET,POST,PATCH,DELETE,PUT,OPTIONS",
             ORIGIN_HEADER = "Origin";
 
     /**
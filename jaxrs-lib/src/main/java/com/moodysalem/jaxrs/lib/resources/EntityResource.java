@@ -1,24 +1,87 @@
 package com.moodysalem.jaxrs.lib.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.moodysalem.hibernate.dialect.WindowFunctions;
 import com.moodysalem.hibernate.model.BaseEntity;
 import com.moodysalem.hibernate.model.BaseEntity_;
+import com.moodysalem.jaxrs.lib.contextresolvers.ObjectMapperContextResolver;
 import com.moodysalem.jaxrs.lib.exceptionmappers.RequestError;
 import com.moodysalem.jaxrs.lib.exceptions.RequestProcessingException;
+import com.moodysalem.jaxrs.lib.factories.JAXRSEntityManagerFactory;
+import com.moodysalem.jaxrs.lib.resources.config.CountConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.CountStrategy;
+import com.moodysalem.jaxrs.lib.resources.config.CursorParameterConfiguration;
 import com.moodysalem.jaxrs.lib.resources.config.EntityResourceConfig;
+import com.moodysalem.jaxrs.lib.resources.config.FieldsParameterConfiguration;
 import com.moodysalem.jaxrs.lib.resources.config.PaginationParameterConfiguration;
 import com.moodysalem.jaxrs.lib.resources.config.SortParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.util.BoundedCache;
+import com.moodysalem.jaxrs.lib.resources.util.CsvWriter;
+import com.moodysalem.jaxrs.lib.resources.util.EntityDescriptor;
+import com.moodysalem.jaxrs.lib.resources.util.EntityReference;
+import com.moodysalem.jaxrs.lib.resources.util.ImportReport;
+import com.moodysalem.jaxrs.lib.resources.util.JsonMergePatch;
+import com.moodysalem.jaxrs.lib.resources.util.KeysetCursor;
+import com.moodysalem.jaxrs.lib.resources.util.ListQuerySpec;
+import com.moodysalem.jaxrs.lib.resources.util.ListValidator;
+import com.moodysalem.jaxrs.lib.resources.util.MultiGetResult;
 import com.moodysalem.jaxrs.lib.resources.util.QueryHelper;
+import com.moodysalem.jaxrs.lib.resources.util.RowCountEstimator;
 import com.moodysalem.jaxrs.lib.resources.util.SortInfo;
-
+import org.glassfish.jersey.process.internal.RequestScope;
+import org.glassfish.jersey.server.CloseableService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+
+import javax.inject.Inject;
+import javax.persistence.Cache;
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import javax.persistence.metamodel.SingularAttribute;
 import javax.ws.rs.*;
 import javax.ws.rs.Path;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -38,54 +101,353 @@ import static java.lang.String.format;
 public abstract class EntityResource<T extends BaseEntity> extends EntityResourceConfig<T> {
     private static final Logger LOG = Logger.getLogger(EntityResource.class.getName());
 
+    // request and response headers for client preferences, from RFC 7240
+    private static final String PREFER = "Prefer", PREFERENCE_APPLIED = "Preference-Applied",
+            RETURN_MINIMAL = "return=minimal";
+
+    // response header with the number of entities deleted by a request
+    private static final String DELETED_COUNT = "X-Deleted-Count";
+
+    // media type of request and response bodies with one JSON entity per line
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    // counts for the CACHED count strategy, shared by every resource using the same entity manager factory
+    private static final Map<EntityManagerFactory, BoundedCache<String, Long>> COUNT_CACHES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    // parsed list query parameters shared by every resource, keyed by query string and the configurations they were
+    // parsed with
+    private static final BoundedCache<List<Object>, ListQuerySpec> LIST_QUERY_SPECS = new BoundedCache<>(1024);
+
+    // cookie holding the time until which a client that wrote reads from the primary
+    public static final String READ_PRIMARY_UNTIL = "ReadPrimaryUntil";
+
+    private ListQuerySpec listQuerySpec;
+
+    // the read only entity manager that reads of the request are routed to, if any
+    private EntityManager readEntityManager;
+
+    @Context
+    private Providers providers;
+
+    @Context
+    private CloseableService closeableService;
+
+    @Inject
+    private RequestScope requestScope;
+
     /**
      * Return a list of type T to the client, including headers about pagination
      *
-     * @return response with entity list and headers corresponding to pagination details
+     * @param asyncResponse resumed with the response of {@link #getList()}
      */
     @GET
+    public void getList(@Suspended final AsyncResponse asyncResponse) {
+        respond(LIST, asyncResponse, this::getList);
+    }
+
+    /**
+     * Return a list of type T to the client, including headers about pagination
+     *
+     * @return response with entity list and headers corresponding to pagination details
+     */
     public Response getList() {
         checkAccess(LIST);
 
-        final Integer count = getCount();
-        final int start = getStart();
+        final ListQuerySpec spec = getListQuerySpec();
+        final Integer count = spec.getCount();
+        final String cursor = spec.getCursor();
 
-        // getSingle the entities
-        final List<T> entities = getListOfEntities(count, start);
-        beforeSend(entities);
+        final PaginationParameterConfiguration paginationConfig = getPaginationConfiguration();
+        final CountStrategy countStrategy = spec.getCountStrategy();
+
+        // answer conditional requests from a summary of the matching rows, before any of them are fetched
+        final ListValidator validator = validateList(countStrategy);
+        final EntityTag entityTag = validator != null ? validator.getEntityTag() : null;
+        final Date lastModified = validator != null ? validator.getLastModified() : null;
+        if (entityTag != null) {
+            final Response.ResponseBuilder notModified =
+                    getContainerRequestContext().getRequest().evaluatePreconditions(entityTag);
+            if (notModified != null) {
+                return notModified.lastModified(lastModified).build();
+            }
+        }
 
-        // count the total number of the results that would've been returned
-        final long totalCount = getTotalCountOfEntities();
+        // keyset pagination, the position in the list is carried by the cursor instead of the start parameter
+        if (cursor != null) {
+            final CursorPage<T> page = getPageAfterCursor(count, cursor);
+            beforeSend(page.getEntities());
 
-        final PaginationParameterConfiguration paginationConfig = getPaginationConfiguration();
+            final Long totalCount = await(countEntities(countStrategy, validator));
+
+            return Response.ok(page.getEntities())
+                    .tag(entityTag)
+                    .lastModified(lastModified)
+                    .header(paginationConfig.getCountHeader(), count)
+                    .header(paginationConfig.getTotalCountHeader(), totalCount)
+                    .header(getCursorConfiguration().getNextCursorHeader(), page.getNextCursor())
+                    .build();
+        }
+
+        final int start = spec.getStart();
+
+        // sparse lists select only the requested fields of each entity
+        final Set<String> fields = spec.getFields();
+        if (fields != null) {
+            final Set<String> selected = getSelectedFields(fields);
+            final CompletableFuture<Long> pendingCount = countEntities(countStrategy, validator);
+            final List<ObjectNode> partialEntities = getPartialListOfEntities(selected, count, start);
+            final Long totalCount = await(pendingCount);
+
+            return Response.ok(partialEntities)
+                    .tag(entityTag)
+                    .lastModified(lastModified)
+                    .header(paginationConfig.getStartHeader(), start)
+                    .header(paginationConfig.getCountHeader(), count)
+                    .header(paginationConfig.getTotalCountHeader(), totalCount)
+                    .build();
+        }
+
+        // lists without a page size are written to the client as they are read from the database
+        final Integer chunkSize = getStreamChunkSize();
+        if (count == null && chunkSize != null) {
+            final Long totalCount = await(countEntities(countStrategy, validator));
+
+            return Response.ok(streamListOfEntities(start, chunkSize))
+                    .tag(entityTag)
+                    .lastModified(lastModified)
+                    .header(paginationConfig.getStartHeader(), start)
+                    .header(paginationConfig.getTotalCountHeader(), totalCount)
+                    .build();
+        }
+
+        // getSingle the entities, along with the total count when it can be computed by the same query
+        final CountedList<T> counted = countStrategy == CountStrategy.WINDOW && validator == null ?
+                getListOfEntitiesWithTotalCount(count, start) : null;
+
+        final List<T> entities;
+        final Long totalCount;
+        if (counted != null) {
+            entities = counted.getEntities();
+            totalCount = counted.getTotalCount();
+        } else {
+            // count the total number of the results that would've been returned, possibly while the page is fetched
+            final CompletableFuture<Long> pendingCount = countEntities(countStrategy, validator);
+            entities = getListOfEntities(count, start);
+            totalCount = await(pendingCount);
+        }
+
+        beforeSend(entities);
 
         // return the filtered and mapped list of entities
         return Response.ok(entities)
+                .tag(entityTag)
+                .lastModified(lastModified)
                 .header(paginationConfig.getStartHeader(), start)
                 .header(paginationConfig.getCountHeader(), count)
                 .header(paginationConfig.getTotalCountHeader(), totalCount)
                 .build();
     }
 
+    /**
+     * Return only the pagination headers of a list, without fetching any of the entities
+     *
+     * @param asyncResponse resumed with the response of {@link #getListHeaders()}
+     */
+    @HEAD
+    public void getListHeaders(@Suspended final AsyncResponse asyncResponse) {
+        respond(LIST, asyncResponse, this::getListHeaders);
+    }
+
+    /**
+     * Return only the pagination headers of a list, without fetching any of the entities
+     *
+     * @return empty response with headers corresponding to pagination details
+     */
+    public Response getListHeaders() {
+        checkAccess(LIST);
+
+        final PaginationParameterConfiguration paginationConfig = getPaginationConfiguration();
+        final ListQuerySpec spec = getListQuerySpec();
+        final ListValidator validator = validateList(spec.getCountStrategy());
+
+        return Response.ok()
+                .tag(validator != null ? validator.getEntityTag() : null)
+                .lastModified(validator != null ? validator.getLastModified() : null)
+                .header(paginationConfig.getStartHeader(), spec.getCursor() == null ? spec.getStart() : null)
+                .header(paginationConfig.getCountHeader(), spec.getCount())
+                .header(paginationConfig.getTotalCountHeader(),
+                        await(countEntities(spec.getCountStrategy(), validator)))
+                .build();
+    }
+
     /**
      * Get a single entity with an ID
      *
-     * @param id of the entity
-     * @return the entity corresponding to the ID
+     * @param id            of the entity
+     * @param asyncResponse resumed with the response of {@link #getSingle(UUID)}
      */
     @GET
     @Path("{id}")
-    public Response getSingle(@PathParam("id") final UUID id) {
+    public void getSingle(@PathParam("id") final UUID id, @Suspended final AsyncResponse asyncResponse) {
+        respond(GET_SINGLE, asyncResponse, () -> getSingle(id));
+    }
+
+    /**
+     * Get a single entity with an ID
+     *
+     * @param id of the entity
+     * @return the entity corresponding to the ID
+     */
+    public Response getSingle(final UUID id) {
         checkAccess(GET_SINGLE);
 
-        final T entity = getEntityWithId(id);
+        // answer conditional requests from the current tag of the entity without loading it
+        if (getContainerRequestContext().getHeaderString(HttpHeaders.IF_NONE_MATCH) != null) {
+            final EntityTag currentTag = getCurrentEntityTag(id);
+            if (currentTag != null) {
+                final Response.ResponseBuilder notModified =
+                        getContainerRequestContext().getRequest().evaluatePreconditions(currentTag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+            }
+        }
+
+        final T entity = getEntityWithId(id, GET_SINGLE);
         if (entity == null) {
             idNotFound(id);
         }
 
         beforeSend(Collections.singletonList(entity));
 
-        return Response.ok(entity).build();
+        return Response.ok(entity).tag(getEntityTag(entity)).build();
+    }
+
+    /**
+     * Get many entities by ID in a single request
+     *
+     * @param ids           of the entities
+     * @param asyncResponse resumed with the response of {@link #getMany(List)}
+     */
+    @POST
+    @Path("_get")
+    public void getMany(final List<UUID> ids, @Suspended final AsyncResponse asyncResponse) {
+        respond(GET_SINGLE, asyncResponse, () -> getMany(ids));
+    }
+
+    /**
+     * Get many entities by ID in a single request. The entities are loaded in chunks, filtered by the predicates
+     * associated with the request, and IDs that are not found are listed instead of failing the request
+     *
+     * @param ids of the entities
+     * @return the entities that were found, and the IDs that were not
+     */
+    public Response getMany(final List<UUID> ids) {
+        checkAccess(GET_SINGLE);
+
+        if (ids == null || ids.isEmpty()) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST, "Empty post body");
+        }
+        if (ids.contains(null)) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST, "Null ID in post body");
+        }
+
+        final Set<UUID> requested = new LinkedHashSet<>(ids);
+        final Map<UUID, T> entities = getEntitiesWithIds(requested, GET_SINGLE);
+
+        final List<T> found = new ArrayList<>(entities.size());
+        final List<UUID> missing = new ArrayList<>();
+        for (final UUID id : requested) {
+            final T entity = entities.get(id);
+            if (entity != null) {
+                found.add(entity);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!found.isEmpty()) {
+            beforeSend(found);
+        }
+
+        return Response.ok(new MultiGetResult<>(found, missing)).build();
+    }
+
+    /**
+     * Get the tag that identifies the stored state of an entity, sent as the ETag of single entity responses. By
+     * default entities are not tagged
+     *
+     * @param entity loaded for the request
+     * @return the entity tag, or null if the entity should not be tagged
+     */
+    protected EntityTag getEntityTag(final T entity) {
+        return null;
+    }
+
+    /**
+     * Get the tag of the entity with an ID as it is currently stored, used to answer If-None-Match requests without
+     * loading the entity. This should be cheaper than loading the entity, and must agree with
+     * {@link #getEntityTag(BaseEntity)}
+     *
+     * @param id of the entity
+     * @return the current tag, or null if the entity is not tagged or does not match the request
+     */
+    protected EntityTag getCurrentEntityTag(final UUID id) {
+        return null;
+    }
+
+    /**
+     * Get the version that a conditional write expects the entity with an ID to have, from the If-Match header of the
+     * request. By default entities are not versioned, and writes are conditional only on the tags of loaded entities
+     *
+     * @param id of the entity being written
+     * @return the expected version, or null if the write is not conditional on a version
+     */
+    protected Long getExpectedVersion(final UUID id) {
+        return null;
+    }
+
+    /**
+     * Get the attribute holding the version of the entity, which conditional deletes compare to the expected version
+     * in the delete statement
+     *
+     * @return the version attribute, or null if the entity is not versioned
+     */
+    protected SingularAttribute<? super T, Long> getVersionAttribute() {
+        return null;
+    }
+
+    /**
+     * Verify that a loaded entity matches the If-Match header of the request, if there is one
+     *
+     * @param entity that is written by the request
+     */
+    private void verifyIfMatch(final T entity) {
+        final String ifMatch = getContainerRequestContext().getHeaderString(HttpHeaders.IF_MATCH);
+        // any stored entity matches *
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return;
+        }
+        final EntityTag tag = getEntityTag(entity);
+        if (tag == null) {
+            throw new RequestProcessingException(Response.Status.PRECONDITION_FAILED,
+                    format("%s is not tagged, so it cannot be written conditionally", getEntityName()));
+        }
+        if (getContainerRequestContext().getRequest().evaluatePreconditions(tag) != null) {
+            throw versionCheckFailed(entity.getId());
+        }
+    }
+
+    /**
+     * Create the exception indicating the entity was not written because it does not have the expected version
+     *
+     * @param id of the entity
+     * @return exception to throw
+     */
+    protected static RequestProcessingException versionCheckFailed(final UUID id) {
+        return new RequestProcessingException(Response.Status.CONFLICT,
+                new RequestError(id, "version", "Version check failed"));
     }
 
     /**
@@ -95,23 +457,27 @@ public abstract class EntityResource<T extends BaseEntity> extends EntityResourc
      * @return map of ID to entity
      */
     private Map<UUID, T> getOldData(final Set<UUID> ids) {
-        final CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        final CriteriaQuery<T> query = cb.createQuery(getEntityClass());
-        final Root<T> from = query.from(getEntityClass());
-
-        return getEntityManager().createQuery(
-                query.select(from).where(from.get(BaseEntity_.id).in(ids))
-        ).getResultList()
+        return QueryHelper.queryByIds(entityManager(), getEntityClass(), ids)
                 .stream().collect(Collectors.toMap(BaseEntity::getId, Function.identity()));
     }
 
     /**
      * Save a set of updates for some entities
      *
-     * @param list of updates
-     * @return updated list
+     * @param list          of updates
+     * @param asyncResponse resumed with the response of {@link #save(List)}
      */
     @POST
+    public void save(final List<T> list, @Suspended final AsyncResponse asyncResponse) {
+        respond(SAVE, asyncResponse, () -> save(list));
+    }
+
+    /**
+     * Save a set of updates for some entities
+     *
+     * @param list of updates
+     * @return updated list, or the IDs and versions of the saved entities if the client prefers return=minimal
+     */
     public Response save(final List<T> list) {
         checkAccess(SAVE);
 
@@ -132,20 +498,20 @@ public abstract class EntityResource<T extends BaseEntity> extends EntityResourc
         // verify that the user is authorized to save each of the posted entities
         verifyCanMergeData(list, oldData);
 
-        final EntityManager em = getEntityManager();
+        final EntityManager em = entityManager();
 
         // now start saving the entities
         final Set<UUID> ids = new HashSet<>();
+        final List<T> mergedEntities = new ArrayList<>(list.size());
 
         // now save each entity
         {
             try {
                 withinTransaction(em, () ->
                         list.forEach(e -> {
-                            beforeMerge(e.getId() != null ? oldData.get(e.getId()) : null, e);
-                            final T merged = getEntityManager().merge(e);
+                            final T merged = mergeEntity(e.getId() != null ? oldData.get(e.getId()) : null, e);
                             ids.add(merged.getId());
-                            afterMerge(merged);
+                            mergedEntities.add(merged);
                         })
                 );
             } catch (Exception e) {
@@ -153,263 +519,1631 @@ public abstract class EntityResource<T extends BaseEntity> extends EntityResourc
             }
         }
 
-        em.clear();
-        final List<T> saved = QueryHelper.query(em, getEntityClass(), e -> e.get(BaseEntity_.id).in(ids));
-
-        beforeSend(saved);
-
-        return Response.ok(saved).build();
+        return respondWithSaved(mergedEntities, ids, Function.identity());
     }
 
     /**
-     * Verify that the user can save each of the items in the list of entities
+     * Save one entity in the current transaction, calling the merge hooks around it
      *
-     * @param list    to verify
-     * @param oldData map of old data IDs
+     * @param old    the stored entity with the same ID, or null if the entity is new
+     * @param entity to save
+     * @return the managed entity
      */
-    protected void verifyCanMergeData(final List<T> list, final Map<UUID, T> oldData) {
-        final List<RequestError> permissionRequestErrors = new LinkedList<>();
-
-        for (int ix = 0; ix < list.size(); ix++) {
-            final T entity = list.get(ix);
-
-            // if there is an ID we need to find it
-            final T old = entity.getId() != null ? oldData.get(entity.getId()) : null;
-
-            if (!canMerge(old, entity)) {
-                permissionRequestErrors.add(
-                        new RequestError(
-                                entity.getId(),
-                                "id",
-                                entity.getId() == null ?
-                                        format("Cannot save %s #%s", getEntityName(), ix) :
-                                        format("Cannot save %s with ID: %s", getEntityName(), entity.getId())
-                        )
-                );
-            }
+    private T mergeEntity(final T old, final T entity) {
+        beforeMerge(old, entity);
+
+        // new entities are persisted, so their inserts can be batched without a select per entity
+        final T merged;
+        if (old == null) {
+            entityManager().persist(entity);
+            merged = entity;
+        } else {
+            merged = entityManager().merge(entity);
         }
 
-        if (!permissionRequestErrors.isEmpty()) {
-            throw new RequestProcessingException(Response.Status.FORBIDDEN,
-                    permissionRequestErrors.stream().toArray(RequestError[]::new));
-        }
+        afterMerge(merged);
+        return merged;
     }
 
     /**
-     * Validate the list only contains one entity per ID
+     * Import entities sent one per line
      *
-     * @param list to check
+     * @param body          of the request
+     * @param asyncResponse resumed with the response of {@link #importEntities(InputStream)}
      */
-    private void validateNoDuplicateIds(final List<T> list) {
-        if (list == null || list.isEmpty()) {
-            return;
-        }
-        // count the number of times each ID occurs
-        final Map<UUID, Long> countById = list.stream()
-                .filter(be -> be.getId() != null)
-                .collect(Collectors.groupingBy(BaseEntity::getId, Collectors.counting()));
-
-        // return all the IDs that occur more than once
-        final Set<UUID> duplicates = countById.keySet()
-                .stream()
-                .filter(id -> countById.get(id) > 1)
-                .collect(Collectors.toSet());
-
-        if (duplicates.size() > 0) {
-            throw new RequestProcessingException(Response.Status.BAD_REQUEST,
-                    format("The following IDs were found more than once in the request body: %s",
-                            duplicates.stream().map(UUID::toString).collect(Collectors.joining(", "))));
-        }
+    @POST
+    @Consumes(APPLICATION_NDJSON)
+    public void importEntities(final InputStream body, @Suspended final AsyncResponse asyncResponse) {
+        respond(SAVE, asyncResponse, () -> importEntities(body));
     }
 
     /**
-     * Delete a single entity
+     * Import entities sent as newline delimited JSON, one entity per line. Lines are parsed one at a time and saved
+     * in chunks of {@link #getImportChunkSize()} entities, each in its own transaction after which the persistence
+     * context is cleared, so the memory used does not grow with the size of the body. Lines that cannot be parsed or
+     * saved do not stop the import, and are reported by line number instead
      *
-     * @param id of the entity to delete
-     * @return 204 if successful, otherwise error message
+     * @param body of the request
+     * @return the import report
      */
-    @DELETE
-    @Path("{id}")
-    public Response delete(@PathParam("id") final UUID id) {
-        checkAccess(DELETE_SINGLE);
+    public Response importEntities(final InputStream body) {
+        checkAccess(SAVE);
 
-        final T entity = getEntityWithId(id);
-        if (entity == null) {
-            idNotFound(id);
-        }
+        final ObjectReader reader = getObjectMapper().reader(getEntityClass());
+        final int chunkSize = getImportChunkSize();
+        final ImportReport report = new ImportReport();
+        final Map<Long, T> chunk = new LinkedHashMap<>();
+
+        try (final BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
 
-        if (!canDelete(entity)) {
-            throw new RequestProcessingException(Response.Status.FORBIDDEN,
-                    format("Not authorized to delete %s with ID %s",
-                            getEntityName(), entity.getId()));
+                try {
+                    chunk.put(lineNumber, reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    report.failed(lineNumber, null, Collections.singleton(new RequestError(
+                            format("Invalid %s: %s", getEntityName(), e.getOriginalMessage()))));
+                    continue;
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                    format("Failed to read the request body: %s", e.getMessage()));
         }
 
-        try {
-            withinTransaction(getEntityManager(), () -> getEntityManager().remove(entity));
-        } catch (Exception e) {
-            throw RequestProcessingException.from(e);
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
         }
 
-        return Response.noContent().build();
+        return Response.ok(report).build();
     }
 
     /**
-     * Delete all the entities matching the query parameters
+     * Save a chunk of imported entities in one transaction. Entities that fail {@link #verifyCanMergeData(List, Map)}
+     * are reported and skipped. If the transaction fails, the entities are saved again one at a time to find the lines that failed
      *
-     * @return empty response
+     * @param chunk  of entities by line number
+     * @param report of the import
      */
-    @DELETE
-    public Response deleteAll() {
-        checkAccess(DELETE);
+    private void importChunk(final Map<Long, T> chunk, final ImportReport report) {
+        final EntityManager em = entityManager();
 
-        final List<T> toDelete = getListOfEntities(null, 0);
+        final Set<UUID> ids = new HashSet<>();
+        final Map<Long, T> accepted = new LinkedHashMap<>();
+        chunk.forEach((line, entity) -> {
+            if (entity.getId() != null && !ids.add(entity.getId())) {
+                report.failed(line, entity.getId(), Collections.singleton(new RequestError(entity.getId(), "id",
+                        format("The ID %s was found on an earlier line of the same chunk", entity.getId()))));
+            } else {
+                accepted.put(line, entity);
+            }
+        });
 
-        final Set<UUID> cannotDelete = toDelete.stream().filter((e) -> !canDelete(e)).map(BaseEntity::getId)
-                .collect(Collectors.toSet());
+        final Map<UUID, T> oldData = !ids.isEmpty() ? getOldData(ids) : Collections.emptyMap();
 
-        if (!cannotDelete.isEmpty()) {
-            throw new RequestProcessingException(Response.Status.FORBIDDEN,
-                    format("Not authorized to delete %s with IDs: %s",
-                            getEntityName(),
-                            cannotDelete.stream().map(UUID::toString).collect(Collectors.joining(", "))));
+        // the checks of a save are applied to the whole chunk, and to each line to find the lines that failed them
+        try {
+            verifyCanMergeData(new ArrayList<>(accepted.values()), oldData);
+        } catch (RequestProcessingException chunkRejected) {
+            accepted.entrySet().removeIf(entry -> {
+                final List<T> single = Collections.singletonList(entry.getValue());
+                try {
+                    // a new entity is identified by its line rather than its position in the single entity list
+                    if (!getCannotMerge(single, oldData).isEmpty()) {
+                        throw new RequestProcessingException(Response.Status.FORBIDDEN,
+                                cannotMergeError(entry.getValue(), entry.getKey()));
+                    }
+                    verifyCanMergeData(single, oldData);
+                    return false;
+                } catch (RequestProcessingException lineRejected) {
+                    report.failed(entry.getKey(), entry.getValue().getId(), lineRejected.getRequestErrors());
+                    return true;
+                }
+            });
         }
 
         try {
-            withinTransaction(getEntityManager(), () -> toDelete.forEach(getEntityManager()::remove));
-        } catch (Exception e) {
-            throw RequestProcessingException.from(e);
+            withinTransaction(em, () -> accepted.values().forEach(e ->
+                    ids.add(mergeEntity(e.getId() != null ? oldData.get(e.getId()) : null, e).getId())));
+            report.imported(accepted.size());
+        } catch (Exception chunkFailure) {
+            em.clear();
+            accepted.forEach((line, e) -> {
+                try {
+                    withinTransaction(em, () ->
+                            ids.add(mergeEntity(e.getId() != null ? oldData.get(e.getId()) : null, e).getId()));
+                    report.imported(1);
+                } catch (Exception lineFailure) {
+                    em.clear();
+                    report.failed(line, e.getId(), RequestProcessingException.from(lineFailure).getRequestErrors());
+                }
+            });
         }
 
-        return Response.noContent().build();
+        em.clear();
+        evictFromCache(ids);
     }
 
     /**
-     * Helper method to getSingle a single query parameter
+     * Apply a JSON merge patch to a single entity
      *
-     * @param param name of the query parameter
-     * @return the value assigned to the query parameter
+     * @param id            of the entity to patch
+     * @param patch         to apply
+     * @param asyncResponse resumed with the response of {@link #patch(UUID, JsonNode)}
      */
-    private String getQueryParameter(final String param) {
-        final List<String> params = getQueryParameters(param);
-        return params != null && !params.isEmpty() ? params.get(0) : null;
+    @PATCH
+    @Path("{id}")
+    @Consumes({JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON})
+    public void patch(@PathParam("id") final UUID id, final JsonNode patch,
+                      @Suspended final AsyncResponse asyncResponse) {
+        respond(SAVE, asyncResponse, () -> patch(id, patch));
     }
 
     /**
-     * Helper method to getSingle a list of values associated with a query parameter
+     * Apply a JSON merge patch (RFC 7396) to a single entity, so that clients can update some properties of an entity
+     * without sending all of them. The patch is applied to the JSON representation of the stored entity and checked
+     * exactly as if the patched entity had been saved, but only the properties that changed are written
      *
-     * @param param name of the query parameter
-     * @return list of values assigned to query parameter
+     * @param id    of the entity to patch
+     * @param patch to apply
+     * @return the patched entity, or its ID and version if the client prefers return=minimal
      */
-    private List<String> getQueryParameters(final String param) {
-        return getContainerRequestContext().getUriInfo().getQueryParameters().get(param);
+    public Response patch(final UUID id, final JsonNode patch) {
+        checkAccess(SAVE);
+
+        if (patch == null || !patch.isObject()) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST, "The patch must be a JSON object");
+        }
+
+        final List<T> patched = applyPatches(Collections.singletonMap(id, (ObjectNode) patch), true);
+
+        return respondWithSaved(patched, Collections.singleton(id), saved -> saved.get(0));
     }
 
     /**
-     * Get the first record that should be returned
+     * Apply JSON merge patches to a set of entities
      *
-     * @return an int corresponding to the first record to return
+     * @param patches       to apply
+     * @param asyncResponse resumed with the response of {@link #patchAll(JsonNode)}
      */
-    private int getStart() {
-        final String start = getQueryParameter(getPaginationConfiguration().getStartQueryParameterName());
-        if (start != null) {
-            try {
-                return Math.max(Integer.parseInt(start), 0);
-            } catch (Exception e) {
-                LOG.log(Level.WARNING, "Invalid start query parameter received", e);
-            }
-        }
-        return 0;
+    @PATCH
+    @Consumes({JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON})
+    public void patchAll(final JsonNode patches, @Suspended final AsyncResponse asyncResponse) {
+        respond(SAVE, asyncResponse, () -> patchAll(patches));
     }
 
     /**
-     * Get the # of records that should be returned
+     * Apply JSON merge patches to a set of entities in one transaction. The body is an array of merge patches, each
+     * of which identifies the entity it applies to by its id
      *
-     * @return the # of records, or null if all should be returned
+     * @param patches to apply
+     * @return the patched entities, or their IDs and versions if the client prefers return=minimal
+     * @see #patch(UUID, JsonNode)
      */
-    private Integer getCount() {
-        final String countString = getQueryParameter(getPaginationConfiguration().getCountQueryParameterName());
-        final Integer maxCount = getPaginationConfiguration().getMaxPerPage();
+    public Response patchAll(final JsonNode patches) {
+        checkAccess(SAVE);
 
-        Integer count = null;
-        if (countString != null) {
-            try {
-                count = Integer.parseInt(countString);
-            } catch (NumberFormatException e) {
-                LOG.log(Level.WARNING, "Invalid count query parameter received", e);
-            }
+        if (patches == null || !patches.isArray() || patches.size() == 0) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST, "Empty patch body");
         }
 
-        if (count != null) {
-            if (maxCount != null) {
-                return Math.max(Math.min(count, maxCount), 0);
-            } else {
-                return Math.max(count, 0);
+        final Map<UUID, ObjectNode> patchesById = new LinkedHashMap<>();
+        final Set<UUID> duplicates = new HashSet<>();
+        for (final JsonNode patch : patches) {
+            final UUID id = patch.isObject() ? parseId(patch.get("id")) : null;
+            if (id == null) {
+                throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                        "Each patch must be a JSON object with the id of the entity it applies to");
+            }
+            if (patchesById.put(id, (ObjectNode) patch) != null) {
+                duplicates.add(id);
             }
         }
-        return maxCount;
-    }
-
-    /**
-     * Return the entity with the ID, filtered by the predicates associated with the request
-     *
-     * @param id of the entity to getSingle
-     * @return entity of type T with ID id
-     */
-    private T getEntityWithId(final UUID id) {
-        final EntityManager em = getEntityManager();
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-        final CriteriaQuery<T> cq = cb.createQuery(getEntityClass());
-        final Root<T> from = cq.from(getEntityClass());
 
-        final Predicate[] predicates = getPredicatesFromRequest(from).stream().toArray(Predicate[]::new);
+        if (!duplicates.isEmpty()) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                    format("The following IDs were found more than once in the request body: %s",
+                            duplicates.stream().map(UUID::toString).collect(Collectors.joining(", "))));
+        }
 
-        final List<T> entity = em.createQuery(cq.select(from)
-                .where(
-                        cb.equal(from.get(BaseEntity_.id), id),
-                        cb.and(predicates)
-                )
-        ).getResultList();
+        final List<T> patched = applyPatches(patchesById, false);
 
-        return (entity.size() == 1 ? entity.get(0) : null);
+        return respondWithSaved(patched, patchesById.keySet(), Function.identity());
     }
 
     /**
-     * Get the total count of entities in the database that match the predicates
+     * Parse the ID of an entity from JSON
      *
-     * @return the total count of entities that match the predicates
+     * @param id JSON value of the ID
+     * @return the ID, or null if the value is not an ID
      */
-    private long getTotalCountOfEntities() {
-        final EntityManager em = getEntityManager();
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
+    private static UUID parseId(final JsonNode id) {
+        if (id == null || !id.isTextual()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id.textValue());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Apply merge patches to the stored entities. Each patched entity is deserialized from the patched JSON of the
+     * stored entity and passed through the same checks and hooks as a saved entity. Then only the properties that
+     * differ from the stored entity are copied to it, so that only they are dirty when the transaction commits.
+     * Singular properties set by {@link #beforeMerge} are copied even if they are not read from JSON, but collections
+     * are only copied through their JSON. Entities mapped with {@link org.hibernate.annotations.DynamicUpdate} are
+     * updated with just those columns
+     *
+     * @param patches     to apply, by the ID of the entity they apply to
+     * @param conditional whether the stored entities must match the If-Match header of the request
+     * @return the patched entities, which are managed
+     */
+    private List<T> applyPatches(final Map<UUID, ObjectNode> patches, final boolean conditional) {
+        final ObjectMapper mapper = getObjectMapper();
+        final Map<UUID, T> oldData = getOldData(patches.keySet());
+
+        final Set<UUID> missing = new HashSet<>(patches.keySet());
+        missing.removeAll(oldData.keySet());
+        if (!missing.isEmpty()) {
+            throw new RequestProcessingException(Response.Status.NOT_FOUND,
+                    format("%s with IDs not found: %s", getEntityName(),
+                            missing.stream().map(UUID::toString).collect(Collectors.joining(", "))));
+        }
+
+        final Map<UUID, ObjectNode> stored = new HashMap<>();
+        final List<T> list = new ArrayList<>(patches.size());
+        patches.forEach((id, patch) -> {
+            final UUID patchedId = patch.has("id") ? parseId(patch.get("id")) : id;
+            if (!id.equals(patchedId)) {
+                throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                        format("The ID of %s with ID %s cannot be patched", getEntityName(), id));
+            }
+
+            if (conditional) {
+                verifyIfMatch(oldData.get(id));
+            }
+
+            final ObjectNode before = mapper.valueToTree(oldData.get(id));
+            stored.put(id, before);
+            try {
+                list.add(mapper.treeToValue(JsonMergePatch.apply(before, patch), getEntityClass()));
+            } catch (JsonProcessingException e) {
+                throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                        format("Invalid patch for %s with ID %s: %s", getEntityName(), id, e.getOriginalMessage()));
+            }
+        });
+
+        verifyCanMergeData(list, oldData);
+
+        final EntityPersister persister = entityManager().getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(getEntityClass());
+        final Type[] propertyTypes = persister.getPropertyTypes();
+
+        try {
+            withinTransaction(entityManager(), () ->
+                    list.forEach(e -> {
+                        final T old = oldData.get(e.getId());
+
+                        final Object[] beforeHook = persister.getPropertyValues(e);
+                        beforeMerge(old, e);
+                        final Object[] afterHook = persister.getPropertyValues(e);
+
+                        final ObjectNode changed = JsonMergePatch.diff(stored.get(e.getId()), mapper.valueToTree(e));
+                        try {
+                            mapper.readerForUpdating(old).readValue(changed);
+                        } catch (IOException ioe) {
+                            throw new UncheckedIOException(ioe);
+                        }
+
+                        // the hook may set properties that cannot be read from JSON, which the diff does not copy
+                        for (int i = 0; i < afterHook.length; i++) {
+                            if (afterHook[i] != beforeHook[i] && !propertyTypes[i].isCollectionType()) {
+                                persister.setPropertyValue(old, i, afterHook[i]);
+                            }
+                        }
+
+                        afterMerge(old);
+                    })
+            );
+        } catch (Exception e) {
+            throw RequestProcessingException.from(e);
+        }
+
+        return list.stream().map(e -> oldData.get(e.getId())).collect(Collectors.toList());
+    }
+
+    /**
+     * Respond to a request that saved some entities
+     *
+     * @param mergedEntities the managed entities that were saved
+     * @param ids            of the saved entities
+     * @param body           creates the response body from the list of saved entities or references to them
+     * @return the response
+     */
+    private Response respondWithSaved(final List<T> mergedEntities, final Set<UUID> ids,
+                                      final Function<List<?>, ?> body) {
+        evictFromCache(ids);
+
+        // the flush already brought the versions of the managed entities up to date
+        if (prefersMinimalReturn()) {
+            final List<EntityReference> references = mergedEntities.stream().map(EntityReference::of)
+                    .collect(Collectors.toList());
+            return Response.ok(body.apply(references))
+                    .header(PREFERENCE_APPLIED, RETURN_MINIMAL)
+                    .build();
+        }
+
+        final List<T> saved;
+        if (isReturnMerged()) {
+            saved = mergedEntities;
+        } else {
+            final EntityManager em = entityManager();
+            em.clear();
+            saved = QueryHelper.queryByIds(em, getEntityClass(), ids);
+        }
+
+        beforeSend(saved);
+
+        return Response.ok(body.apply(saved)).build();
+    }
+
+    /**
+     * Whether the client asked for a minimal response with the Prefer header
+     *
+     * @return true if the request prefers return=minimal
+     */
+    private boolean prefersMinimalReturn() {
+        final List<String> prefer = getContainerRequestContext().getHeaders().get(PREFER);
+        return prefer != null && prefer.stream()
+                .flatMap(value -> Arrays.stream(value.split("[,;]")))
+                .anyMatch(preference -> RETURN_MINIMAL.equalsIgnoreCase(preference.replace(" ", "")));
+    }
+
+    /**
+     * Verify that the user can save each of the items in the list of entities
+     *
+     * @param list    to verify
+     * @param oldData map of old data IDs
+     */
+    protected void verifyCanMergeData(final List<T> list, final Map<UUID, T> oldData) {
+        final List<RequestError> permissionRequestErrors = new LinkedList<>();
+
+        final Set<T> cannotMerge = identitySet(getCannotMerge(list, oldData));
+        for (int ix = 0; ix < list.size(); ix++) {
+            final T entity = list.get(ix);
+            if (cannotMerge.contains(entity)) {
+                permissionRequestErrors.add(cannotMergeError(entity, ix));
+            }
+        }
+
+        if (!permissionRequestErrors.isEmpty()) {
+            throw new RequestProcessingException(Response.Status.FORBIDDEN,
+                    permissionRequestErrors.stream().toArray(RequestError[]::new));
+        }
+    }
+
+    /**
+     * Validate the list only contains one entity per ID
+     *
+     * @param list to check
+     */
+    private void validateNoDuplicateIds(final List<T> list) {
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        // count the number of times each ID occurs
+        final Map<UUID, Long> countById = list.stream()
+                .filter(be -> be.getId() != null)
+                .collect(Collectors.groupingBy(BaseEntity::getId, Collectors.counting()));
+
+        // return all the IDs that occur more than once
+        final Set<UUID> duplicates = countById.keySet()
+                .stream()
+                .filter(id -> countById.get(id) > 1)
+                .collect(Collectors.toSet());
+
+        if (duplicates.size() > 0) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                    format("The following IDs were found more than once in the request body: %s",
+                            duplicates.stream().map(UUID::toString).collect(Collectors.joining(", "))));
+        }
+    }
+
+    /**
+     * The error for an entity that cannot be saved
+     *
+     * @param entity that cannot be saved
+     * @param ix     position of the entity in the request, or its line number in an import
+     * @return the error
+     */
+    private RequestError cannotMergeError(final T entity, final long ix) {
+        return new RequestError(
+                entity.getId(),
+                "id",
+                entity.getId() == null ?
+                        format("Cannot save %s #%s", getEntityName(), ix) :
+                        format("Cannot save %s with ID: %s", getEntityName(), entity.getId())
+        );
+    }
+
+    /**
+     * Collect entities into a set compared by identity, since new entities have no ID to compare them by
+     *
+     * @param entities to collect
+     * @param <X>      type of the entities
+     * @return the set of entities
+     */
+    private static <X> Set<X> identitySet(final Collection<X> entities) {
+        final Set<X> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(entities);
+        return set;
+    }
+
+    /**
+     * Delete a single entity
+     *
+     * @param id            of the entity to delete
+     * @param asyncResponse resumed with the response of {@link #delete(UUID)}
+     */
+    @DELETE
+    @Path("{id}")
+    public void delete(@PathParam("id") final UUID id, @Suspended final AsyncResponse asyncResponse) {
+        respond(DELETE_SINGLE, asyncResponse, () -> delete(id));
+    }
+
+    /**
+     * Delete a single entity
+     *
+     * @param id of the entity to delete
+     * @return 204 if successful, otherwise error message
+     */
+    public Response delete(final UUID id) {
+        checkAccess(DELETE_SINGLE);
+
+        final Long expectedVersion = getExpectedVersion(id);
+        if (expectedVersion != null && deleteWithVersion(id, expectedVersion)) {
+            evictFromCache(Collections.singleton(id));
+            return Response.noContent().build();
+        }
+
+        final T entity = getEntityWithId(id, DELETE_SINGLE);
+        if (entity == null) {
+            idNotFound(id);
+        }
+
+        verifyIfMatch(entity);
+
+        if (!getCannotDelete(Collections.singletonList(entity)).isEmpty()) {
+            throw new RequestProcessingException(Response.Status.FORBIDDEN,
+                    format("Not authorized to delete %s with ID %s",
+                            getEntityName(), entity.getId()));
+        }
+
+        try {
+            withinTransaction(entityManager(), () -> entityManager().remove(entity));
+        } catch (Exception e) {
+            throw RequestProcessingException.from(e);
+        }
+
+        evictFromCache(Collections.singleton(id));
+
+        return Response.noContent().build();
+    }
+
+    /**
+     * Delete the entity with an ID only if it has the expected version, without loading it. The version is checked by
+     * the delete statement, so a write that commits after the entity is authorized still fails the delete. This is
+     * only possible for entities without collections or cascades when deletes are authorized by
+     * {@link #getCannotDeletePredicate}, and like bulk deletes it does not run entity callbacks
+     *
+     * @param id              of the entity to delete
+     * @param expectedVersion of the entity
+     * @return true if the entity was deleted, or false if it must be loaded to be deleted
+     */
+    private boolean deleteWithVersion(final UUID id, final long expectedVersion) {
+        final SingularAttribute<? super T, Long> versionAttribute = getVersionAttribute();
+        if (versionAttribute == null || hasCollectionsOrCascades()) {
+            return false;
+        }
+
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<T> root = cq.from(getEntityClass());
+
+        final Predicate cannotDeletePredicate = getCannotDeletePredicate(root);
+        if (cannotDeletePredicate == null) {
+            return false;
+        }
+
+        final List<Predicate> predicates = getPredicatesFromRequest(root);
+        predicates.add(cb.equal(root.get(BaseEntity_.id), id));
+
+        // the version and whether the entity can be deleted, selected in one query
+        final List<Tuple> rows = em.createQuery(cq.multiselect(
+                root.get(versionAttribute),
+                cb.<Integer>selectCase().when(cannotDeletePredicate, 1).otherwise(0)
+        ).where(predicates.stream().toArray(Predicate[]::new))).setMaxResults(1).getResultList();
+
+        if (rows.isEmpty()) {
+            idNotFound(id);
+        }
+        if (rows.get(0).get(1, Integer.class) == 1) {
+            throw new RequestProcessingException(Response.Status.FORBIDDEN,
+                    format("Not authorized to delete %s with ID %s", getEntityName(), id));
+        }
+        if (rows.get(0).get(0, Long.class) != expectedVersion) {
+            throw versionCheckFailed(id);
+        }
+
+        final CriteriaDelete<T> cd = cb.createCriteriaDelete(getEntityClass());
+        final Root<T> deleteRoot = cd.from(getEntityClass());
+        final int deleted;
+        try {
+            deleted = withinTransaction(em, () -> em.createQuery(cd.where(
+                    cb.equal(deleteRoot.get(BaseEntity_.id), id),
+                    cb.equal(deleteRoot.get(versionAttribute), expectedVersion)
+            )).executeUpdate());
+        } catch (Exception e) {
+            throw RequestProcessingException.from(e);
+        }
+
+        // the entity was written or deleted since it was authorized
+        if (deleted == 0) {
+            throw versionCheckFailed(id);
+        }
+        return true;
+    }
+
+    /**
+     * Delete all the entities matching the query parameters
+     *
+     * @param asyncResponse resumed with the response of {@link #deleteAll()}
+     */
+    @DELETE
+    public void deleteAll(@Suspended final AsyncResponse asyncResponse) {
+        respond(DELETE, asyncResponse, this::deleteAll);
+    }
+
+    /**
+     * Delete all the entities matching the query parameters
+     *
+     * @return empty response with the number of deleted entities in a header
+     */
+    public Response deleteAll() {
+        checkAccess(DELETE);
+
+        // authorize the whole list with the predicate when there is one
+        final List<UUID> cannotDeleteIds = getIdsToDelete(true, null);
+
+        // without the predicate, the entities must be loaded to be authorized
+        if (isBulkDelete() && cannotDeleteIds != null) {
+            forbidDelete(cannotDeleteIds);
+            return Response.noContent().header(DELETED_COUNT, bulkDelete()).build();
+        }
+
+        final List<T> toDelete = getListOfEntities(null, 0);
+
+        forbidDelete(cannotDeleteIds != null ? cannotDeleteIds :
+                getCannotDelete(toDelete).stream().map(BaseEntity::getId).collect(Collectors.toSet()));
+
+        try {
+            withinTransaction(entityManager(), () -> toDelete.forEach(entityManager()::remove));
+        } catch (Exception e) {
+            throw RequestProcessingException.from(e);
+        }
+
+        evictFromCache(toDelete.stream().map(BaseEntity::getId).collect(Collectors.toSet()));
+
+        return Response.noContent().header(DELETED_COUNT, toDelete.size()).build();
+    }
+
+    /**
+     * Throw an exception indicating some entities cannot be deleted, if there are any
+     *
+     * @param cannotDelete IDs of the entities that cannot be deleted
+     */
+    private void forbidDelete(final Collection<UUID> cannotDelete) {
+        if (!cannotDelete.isEmpty()) {
+            throw new RequestProcessingException(Response.Status.FORBIDDEN,
+                    format("Not authorized to delete %s with IDs: %s",
+                            getEntityName(),
+                            cannotDelete.stream().map(UUID::toString).collect(Collectors.joining(", "))));
+        }
+    }
+
+    /**
+     * Delete the entities matching the query parameters without loading them all. The entities are deleted by ID in
+     * chunks, and each chunk is committed in its own transaction so that locks are not held for the whole delete. If
+     * a chunk fails, the chunks before it stay deleted. The entities must already be authorized by
+     * {@link #getCannotDeletePredicate}
+     *
+     * @return the number of entities deleted
+     */
+    private long bulkDelete() {
+        final EntityManager em = entityManager();
+
+        final boolean removeEntities = hasCollectionsOrCascades();
+
+        long deleted = 0;
+        List<UUID> ids;
+        while (!(ids = getIdsToDelete(false, QueryHelper.MAX_IN_LIST_SIZE)).isEmpty()) {
+            final List<UUID> chunk = QueryHelper.chunk(ids, QueryHelper.MAX_IN_LIST_SIZE).get(0);
+
+            final int chunkDeleted;
+            try {
+                chunkDeleted = withinTransaction(em, () ->
+                        removeEntities ? removeWithIds(chunk) : deleteWithIds(chunk));
+            } catch (Exception e) {
+                throw RequestProcessingException.from(e);
+            }
+            em.clear();
+            evictFromCache(ids);
+
+            // the IDs were deleted by another request, so stop rather than select them again
+            if (chunkDeleted == 0) {
+                break;
+            }
+            deleted += chunkDeleted;
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Select the IDs of entities matching the query parameters that can or cannot be deleted
+     *
+     * @param cannotDelete true to select the entities matching {@link #getCannotDeletePredicate}, false to select the
+     *                     others
+     * @param maxResults   the most IDs to select, or null for all of them
+     * @return the IDs, or null when selecting the entities that cannot be deleted and there is no predicate for them
+     */
+    private List<UUID> getIdsToDelete(final boolean cannotDelete, final Integer maxResults) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<UUID> cq = cb.createQuery(UUID.class);
+        final Root<T> root = cq.from(getEntityClass());
+
+        final List<Predicate> predicates = getPredicatesFromRequest(root);
+        final Predicate cannotDeletePredicate = getCannotDeletePredicate(root);
+        if (cannotDeletePredicate == null) {
+            if (cannotDelete) {
+                return null;
+            }
+        } else if (cannotDelete) {
+            predicates.add(cannotDeletePredicate);
+        } else {
+            // negating the predicate would leave out the rows where it is null, which would then be neither deleted
+            // nor reported, so select the rows for which it is not true
+            final Subquery<UUID> denied = cq.subquery(UUID.class);
+            final Root<T> deniedRoot = denied.from(getEntityClass());
+            denied.select(deniedRoot.get(BaseEntity_.id)).where(
+                    cb.equal(deniedRoot.get(BaseEntity_.id), root.get(BaseEntity_.id)),
+                    getCannotDeletePredicate(deniedRoot)
+            );
+            predicates.add(cb.not(cb.exists(denied)));
+        }
+
+        final TypedQuery<UUID> query = em.createQuery(
+                cq.select(root.get(BaseEntity_.id)).distinct(true).where(predicates.stream().toArray(Predicate[]::new))
+        );
+        if (maxResults != null) {
+            query.setMaxResults(maxResults);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Whether deleting an entity must also delete its collections or cascade to other entities, which a bulk delete
+     * statement would not do
+     *
+     * @return true if entities must be loaded to be removed
+     */
+    private boolean hasCollectionsOrCascades() {
+        final EntityPersister persister = entityManager().getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(getEntityClass());
+        return persister.hasCollections() || persister.hasCascades();
+    }
+
+    /**
+     * Delete the entities with some IDs in a single statement
+     *
+     * @param ids of the entities to delete
+     * @return the number of entities deleted
+     */
+    private int deleteWithIds(final List<UUID> ids) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaDelete<T> cd = cb.createCriteriaDelete(getEntityClass());
+        final Root<T> root = cd.from(getEntityClass());
+
+        // parameter expressions are not registered for criteria deletes, but the values are still bound as parameters
+        return em.createQuery(cd.where(root.get(BaseEntity_.id).in(ids))).executeUpdate();
+    }
+
+    /**
+     * Load the entities with some IDs and remove them, so that their collections and cascades are deleted with them
+     *
+     * @param ids of the entities to remove
+     * @return the number of entities removed
+     */
+    private int removeWithIds(final List<UUID> ids) {
+        final List<T> entities = QueryHelper.queryByIds(entityManager(), getEntityClass(), ids);
+        entities.forEach(entityManager()::remove);
+        return entities.size();
+    }
+
+    /**
+     * Resume an async response with the response of a request handler. If the resource has a request executor the
+     * handler runs on it, within the request scope of the request so that the entity manager and the other request
+     * scoped objects are the same ones the container thread would use. The scope is kept open until the handler
+     * completes, even if the request times out first
+     *
+     * @param action        of the request, which decides the timeout
+     * @param asyncResponse to resume
+     * @param handler       that produces the response
+     */
+    private void respond(final Action action, final AsyncResponse asyncResponse, final Supplier<Response> handler) {
+        // writes that time out may still commit, so only reads can safely fail with a response clients retry
+        final Long timeout = action == LIST || action == GET_SINGLE ? getTimeout(action) : null;
+        if (timeout != null) {
+            asyncResponse.setTimeoutHandler(timedOut -> timedOut.resume(
+                    new RequestProcessingException(Response.Status.SERVICE_UNAVAILABLE,
+                            format("The request did not complete within %s ms", timeout))));
+            asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        final Supplier<Response> routed = () -> route(action, handler);
+
+        final Executor executor = getRequestExecutor();
+        if (executor == null) {
+            resume(asyncResponse, routed);
+            return;
+        }
+
+        final RequestScope.Instance scope = requestScope.referenceCurrent();
+        try {
+            executor.execute(() -> {
+                try {
+                    // the request timed out while the work was queued
+                    if (!asyncResponse.isDone()) {
+                        requestScope.runInScope(scope, () -> resume(asyncResponse, routed));
+                    }
+                } finally {
+                    scope.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scope.release();
+            asyncResponse.resume(new RequestProcessingException(Response.Status.SERVICE_UNAVAILABLE,
+                    "Too many requests are waiting for the database"));
+        }
+    }
+
+    /**
+     * Route the reads of an action to a read only entity manager, unless the client wrote within the read your writes
+     * window, and start the window of clients that write
+     *
+     * @param action  of the request
+     * @param handler that produces the response
+     * @return the response
+     */
+    private Response route(final Action action, final Supplier<Response> handler) {
+        final JAXRSEntityManagerFactory readFactory = getReadEntityManagerFactory();
+        if (readFactory == null) {
+            return handler.get();
+        }
+
+        if (action == LIST || action == GET_SINGLE) {
+            if (!readsPrimary()) {
+                // closed after the response is written, since lists may be streamed
+                readEntityManager = readFactory.createReadOnlyEntityManager();
+                closeableService.add(readEntityManager::close);
+            }
+            return handler.get();
+        }
+
+        final Response response = handler.get();
+        final long window = readFactory.getReadYourWritesMillis();
+        if (window <= 0 || response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+            return response;
+        }
+        return Response.fromResponse(response).cookie(new NewCookie(READ_PRIMARY_UNTIL,
+                Long.toString(System.currentTimeMillis() + window), "/", null, null,
+                (int) TimeUnit.MILLISECONDS.toSeconds(window + 999), false)).build();
+    }
+
+    /**
+     * Whether the client wrote within the read your writes window, and so must read from the primary
+     *
+     * @return true if reads must not be routed to a read only entity manager
+     */
+    private boolean readsPrimary() {
+        final Cookie cookie = getContainerRequestContext().getCookies().get(READ_PRIMARY_UNTIL);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the entity manager that the request reads and writes with
+     *
+     * @return the read only entity manager that reads are routed to, or the entity manager of the request
+     */
+    private EntityManager entityManager() {
+        return readEntityManager != null ? readEntityManager : getEntityManager();
+    }
+
+    /**
+     * Resume an async response with the response of a handler, or with the exception it throws so that it is mapped
+     * to an error response
+     *
+     * @param asyncResponse to resume
+     * @param handler       that produces the response
+     */
+    private static void resume(final AsyncResponse asyncResponse, final Supplier<Response> handler) {
+        try {
+            asyncResponse.resume(handler.get());
+        } catch (RuntimeException e) {
+            asyncResponse.resume(e);
+        }
+    }
+
+    /**
+     * Export the entities matching the query parameters
+     *
+     * @param asyncResponse resumed with the response of {@link #export()}
+     */
+    @GET
+    @Produces({APPLICATION_NDJSON + ";qs=0.5", CsvWriter.MEDIA_TYPE + ";qs=0.5"})
+    public void export(@Suspended final AsyncResponse asyncResponse) {
+        respond(LIST, asyncResponse, this::export);
+    }
+
+    /**
+     * Export all the entities matching the predicates and sorts of the request, as newline delimited JSON or as CSV
+     * with a header row depending on the Accept header. The basic attributes of the entities, or the requested fields,
+     * are selected in a single forward only pass that fetches {@link #getExportChunkSize()} rows at a time, in a
+     * transaction so that drivers such as PostgreSQL's honor the fetch size. The rows are never managed by the
+     * persistence context, and are written to the client a chunk at a time as they are read, so exports use constant
+     * memory. Pagination parameters are ignored
+     *
+     * @return the streamed export
+     */
+    public Response export() {
+        checkAccess(LIST);
+
+        final Integer chunkSize = getExportChunkSize();
+        if (chunkSize == null) {
+            throw new RequestProcessingException(Response.Status.NOT_ACCEPTABLE,
+                    format("Lists of %s cannot be exported", getEntityName()));
+        }
+
+        final Variant variant = getContainerRequestContext().getRequest().selectVariant(
+                Variant.mediaTypes(MediaType.valueOf(APPLICATION_NDJSON), MediaType.valueOf(CsvWriter.MEDIA_TYPE))
+                        .build());
+        final boolean csv = variant != null && variant.getMediaType().isCompatible(
+                MediaType.valueOf(CsvWriter.MEDIA_TYPE));
+
+        final Set<String> requested = getListQuerySpec().getFields();
+        final Set<String> fields = requested != null ? getSelectedFields(requested) : getExportedFields();
+
+        final org.hibernate.query.Query<?> query = createPartialListQuery(fields)
+                .unwrap(org.hibernate.query.Query.class);
+
+        final StreamingOutput export = output -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            final CsvWriter csvWriter = csv ? new CsvWriter(writer) : null;
+            final JsonGenerator generator = csv ? null : getObjectMapper().getFactory().createGenerator(writer);
+            if (csvWriter != null) {
+                csvWriter.writeRow(fields);
+            }
+
+            final List<Tuple> chunk = new ArrayList<>(chunkSize);
+            QueryHelper.scroll(entityManager(), query, chunkSize, results -> {
+                while (results.next()) {
+                    chunk.add((Tuple) results.get(0));
+                    if (chunk.size() == chunkSize) {
+                        writeExportChunk(chunk, fields, csvWriter, generator);
+                    }
+                }
+                writeExportChunk(chunk, fields, csvWriter, generator);
+            });
+            writer.flush();
+        };
+
+        return Response.ok(export, csv ? CsvWriter.MEDIA_TYPE : APPLICATION_NDJSON).build();
+    }
+
+    /**
+     * Write a chunk of exported rows to the client, and clear the chunk
+     *
+     * @param chunk     of rows
+     * @param fields    selected by the rows
+     * @param csvWriter to write CSV rows, or null to write newline delimited JSON
+     * @param generator to write JSON, when not writing CSV
+     */
+    private void writeExportChunk(final List<Tuple> chunk, final Set<String> fields, final CsvWriter csvWriter,
+                                  final JsonGenerator generator) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        for (final ObjectNode node : toPartialEntities(chunk, fields)) {
+            if (csvWriter != null) {
+                csvWriter.writeRow(fields.stream().map(field -> csvValue(node.get(field)))
+                        .collect(Collectors.toList()));
+            } else {
+                generator.writeTree(node);
+                generator.writeRaw('\n');
+            }
+        }
+
+        if (csvWriter != null) {
+            csvWriter.flush();
+        } else {
+            generator.flush();
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Get the fields exported when the request does not select any, which are the basic attributes of the entity
+     *
+     * @return the ID followed by the other basic attributes by name
+     */
+    private Set<String> getExportedFields() {
+        final Set<String> fields = new LinkedHashSet<>();
+        fields.add(BaseEntity_.id.getName());
+        getEntityDescriptor().getAttributePaths().values().stream()
+                .filter(attributePath -> attributePath.getJoins().isEmpty())
+                .map(EntityDescriptor.AttributePath::getPath)
+                .sorted()
+                .forEach(fields::add);
+        return fields;
+    }
+
+    /**
+     * Format a field of an entity as a CSV value. Objects and arrays are written as JSON
+     *
+     * @param value of the field
+     * @return the value, or null if the field has no value
+     */
+    private static String csvValue(final JsonNode value) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    /**
+     * Get the object mapper that is used to write entities to the client
+     *
+     * @return the object mapper registered with the application, or the default one if none is registered
+     */
+    protected ObjectMapper getObjectMapper() {
+        final ContextResolver<ObjectMapper> resolver = providers != null ?
+                providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE) : null;
+        final ObjectMapper mapper = resolver != null ? resolver.getContext(getEntityClass()) : null;
+        return mapper != null ? mapper : new ObjectMapperContextResolver().getContext(getEntityClass());
+    }
+
+    /**
+     * Get the parsed query parameters of a list request. The spec is parsed once per request, and requests with the
+     * same query string and the same parameter configurations share a cached spec
+     *
+     * @return the list query spec
+     */
+    private ListQuerySpec getListQuerySpec() {
+        if (listQuerySpec == null) {
+            final UriInfo uriInfo = getContainerRequestContext().getUriInfo();
+            final String rawQuery = uriInfo.getRequestUri().getRawQuery();
+            final PaginationParameterConfiguration paginationConfig = getPaginationConfiguration();
+            final SortParameterConfiguration sortConfig = getSortConfiguration();
+            final CursorParameterConfiguration cursorConfig = getCursorConfiguration();
+            final CountConfiguration countConfig = getCountConfiguration();
+            final FieldsParameterConfiguration fieldsConfig = getFieldsConfiguration();
+
+            // the configurations may differ between requests to the same resource
+            final List<Object> key = Arrays.asList(rawQuery != null ? rawQuery : "", paginationConfig, sortConfig,
+                    cursorConfig, countConfig, fieldsConfig);
+
+            ListQuerySpec spec = LIST_QUERY_SPECS.get(key);
+            if (spec == null) {
+                spec = ListQuerySpec.parse(rawQuery, uriInfo.getQueryParameters(), paginationConfig, sortConfig,
+                        cursorConfig, countConfig, fieldsConfig);
+                LIST_QUERY_SPECS.put(key, spec);
+            }
+            listQuerySpec = spec;
+        }
+        return listQuerySpec;
+    }
+
+    /**
+     * Return the entity with the ID, filtered by the predicates associated with the request
+     *
+     * @param id     of the entity to getSingle
+     * @param action for which the entity is loaded, which decides the entity graph that is fetched
+     * @return entity of type T with ID id
+     */
+    private T getEntityWithId(final UUID id, final Action action) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> cq = cb.createQuery(getEntityClass());
+        final Root<T> from = cq.from(getEntityClass());
+
+        final Predicate[] predicates = getPredicatesFromRequest(from).stream().toArray(Predicate[]::new);
+        final EntityGraph<T> graph = getEntityGraph(action);
+
+        if (isIdLookupCached()) {
+            final T cached = em.find(getEntityClass(), id, graph != null ?
+                    Collections.singletonMap(QueryHints.HINT_LOADGRAPH, graph) : Collections.emptyMap());
+            if (cached == null || predicates.length == 0) {
+                return cached;
+            }
+            // the cache knows nothing about the request, so make sure the entity is visible to it
+            return getAttributeOfEntityWithId(id, BaseEntity_.id) != null ? cached : null;
+        }
+
+        final TypedQuery<T> query = em.createQuery(cq.select(from)
+                .where(
+                        cb.equal(from.get(BaseEntity_.id), id),
+                        cb.and(predicates)
+                )
+        );
+        if (graph != null) {
+            query.setHint(QueryHints.HINT_LOADGRAPH, graph);
+        }
+
+        // the entity is repeated once per fetched row of a collection in the graph
+        final List<T> entity = query.getResultList();
+
+        return (entity.isEmpty() ? null : entity.get(0));
+    }
+
+    /**
+     * Return the entities with some IDs, filtered by the predicates associated with the request. The IDs are bound in
+     * chunks, as in {@link QueryHelper#queryByIds(EntityManager, Class, Collection, Map)}
+     *
+     * @param ids    of the entities
+     * @param action for which the entities are loaded, which decides the entity graph that is fetched
+     * @return map of ID to the entities that match the request
+     */
+    private Map<UUID, T> getEntitiesWithIds(final Set<UUID> ids, final Action action) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> cq = cb.createQuery(getEntityClass());
+        final Root<T> from = cq.from(getEntityClass());
+        final ParameterExpression<Collection<?>> idsParameter = QueryHelper.collectionParameter(cb);
+
+        final Predicate[] predicates = getPredicatesFromRequest(from).stream().toArray(Predicate[]::new);
+        final EntityGraph<T> graph = getEntityGraph(action);
+
+        cq.select(from).where(from.get(BaseEntity_.id).in(idsParameter), cb.and(predicates));
+
+        // entities are repeated once per fetched row of a collection in the graph
+        final Map<UUID, T> entities = new HashMap<>();
+        for (final List<UUID> chunk : QueryHelper.chunk(ids, QueryHelper.MAX_IN_LIST_SIZE)) {
+            final TypedQuery<T> query = em.createQuery(cq).setParameter(idsParameter, chunk);
+            if (graph != null) {
+                query.setHint(QueryHints.HINT_LOADGRAPH, graph);
+            }
+            query.getResultList().forEach(entity -> entities.putIfAbsent(entity.getId(), entity));
+        }
+        return entities;
+    }
+
+    /**
+     * Evict entities that were written by the request from the second level cache, so that the next lookup by ID
+     * reads them from the database even if the cache missed one of the writes
+     *
+     * @param ids of the entities that were written
+     */
+    private void evictFromCache(final Collection<UUID> ids) {
+        final Cache cache = entityManager().getEntityManagerFactory().getCache();
+        ids.forEach(id -> cache.evict(getEntityClass(), id));
+    }
+
+    /**
+     * Get the summary of the entities that match a list request, when it is needed. The summary is an aggregate over
+     * every matching row, so it is only computed to answer If-None-Match requests, or when the exact count it
+     * includes replaces the count query. Other lists are sent without an ETag, and are counted by their strategy
+     *
+     * @param strategy for computing the count of the list
+     * @return the summary, or null if the list is not validated
+     */
+    private ListValidator validateList(final CountStrategy strategy) {
+        final boolean conditional = getContainerRequestContext().getHeaderString(HttpHeaders.IF_NONE_MATCH) != null;
+        return conditional || strategy == CountStrategy.EXACT ? getListValidator() : null;
+    }
+
+    /**
+     * Get a summary of the entities that match a list request, which is sent as the ETag and Last-Modified of list
+     * responses and used to answer If-None-Match requests without fetching the list. By default lists are not
+     * validated
+     *
+     * @return the summary, or null if lists should not be validated
+     */
+    protected ListValidator getListValidator() {
+        return null;
+    }
+
+    /**
+     * Summarize the entities that match the predicates associated with the request by their count and the latest
+     * value of an attribute that is updated whenever an entity is modified
+     *
+     * @param lastModified attribute holding the modification time of an entity in millis
+     * @return the summary of the entities that match the list request
+     */
+    protected ListValidator getListValidator(final SingularAttribute<? super T, Long> lastModified) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<T> root = cq.from(getEntityClass());
+
+        final Predicate[] predicates = getPredicatesFromRequest(root).stream().toArray(Predicate[]::new);
+
+        final Tuple summary = em.createQuery(
+                cq.multiselect(cb.max(root.get(lastModified)), countOf(cb, root)).where(predicates)
+        ).getSingleResult();
+
+        return new ListValidator(summary.get(0, Long.class), summary.get(1, Long.class),
+                getClass().getName() + "?" + getListQuerySpec().getRawQuery());
+    }
+
+    /**
+     * Get a single attribute of the entity with the ID, filtered by the predicates associated with the request. Only
+     * the attribute is selected, so the entity and its collections are not loaded
+     *
+     * @param id        of the entity
+     * @param attribute to select
+     * @param <Y>       type of the attribute
+     * @return the value of the attribute, or null if no entity with the ID matches the request
+     */
+    @SuppressWarnings("unchecked")
+    protected <Y> Y getAttributeOfEntityWithId(final UUID id, final SingularAttribute<? super T, Y> attribute) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Object> cq = cb.createQuery();
+        final Root<T> from = cq.from(getEntityClass());
+
+        final Predicate[] predicates = getPredicatesFromRequest(from).stream().toArray(Predicate[]::new);
+
+        final List<Object> values = em.createQuery(cq.select(from.get(attribute))
+                .where(
+                        cb.equal(from.get(BaseEntity_.id), id),
+                        cb.and(predicates)
+                )
+        ).getResultList();
+
+        return (values.size() == 1 ? (Y) values.get(0) : null);
+    }
+
+    /**
+     * Start counting the entities in the database that match the predicates, unless an exact count is requested and
+     * the summary of the list already counted them
+     *
+     * @param strategy  for computing the count
+     * @param validator summary of the list, or null if the list is not validated
+     * @return the pending total count of entities that match the predicates, which is null if the strategy is NONE
+     */
+    private CompletableFuture<Long> countEntities(final CountStrategy strategy, final ListValidator validator) {
+        if (validator != null && (strategy == CountStrategy.EXACT || strategy == CountStrategy.WINDOW)) {
+            return CompletableFuture.completedFuture(validator.getCount());
+        }
+        return countEntities(strategy);
+    }
+
+    /**
+     * Start counting the entities in the database that match the predicates. The count query runs on the count
+     * entity manager factory if the resource has one, so that the caller can fetch the page in the meantime
+     *
+     * @param strategy for computing the count
+     * @return the pending total count of entities that match the predicates, which is null if the strategy is NONE
+     */
+    private CompletableFuture<Long> countEntities(final CountStrategy strategy) {
+        if (strategy == CountStrategy.NONE) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
         final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
         final Root<T> root = cq.from(getEntityClass());
 
         final Predicate[] predicates = getPredicatesFromRequest(root).stream().toArray(Predicate[]::new);
 
-        final CriteriaQuery<Long> countQuery = cq.select(cb.count(root)).where(predicates);
+        // the planner statistics only describe the whole table
+        if (strategy == CountStrategy.ESTIMATED && predicates.length == 0) {
+            final Long estimate = RowCountEstimator.estimate(em, getEntityClass());
+            if (estimate != null) {
+                return CompletableFuture.completedFuture(estimate);
+            }
+        }
+
+        final CriteriaQuery<Long> countQuery = cq.select(countOf(cb, root)).where(predicates);
+
+        final String cacheKey = strategy == CountStrategy.CACHED ? QueryHelper.describe(em.createQuery(countQuery)) : null;
+        final BoundedCache<String, Long> countCache = cacheKey != null ?
+                COUNT_CACHES.computeIfAbsent(em.getEntityManagerFactory(), emf -> new BoundedCache<>(1024)) : null;
+        if (cacheKey != null) {
+            final Long cached = countCache.get(cacheKey);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        final JAXRSEntityManagerFactory countFactory = getCountEntityManagerFactory();
+        final CompletableFuture<Long> totalCount = countFactory != null ?
+                countFactory.readOnly(countEm -> countEm.createQuery(countQuery).getSingleResult()) :
+                CompletableFuture.completedFuture(em.createQuery(countQuery).getSingleResult());
+
+        if (cacheKey != null) {
+            final long cacheMillis = getCountConfiguration().getCacheMillis();
+            return totalCount.thenApply(count -> {
+                countCache.put(cacheKey, count, cacheMillis);
+                return count;
+            });
+        }
+
+        return totalCount;
+    }
 
-        return em.createQuery(countQuery).getSingleResult();
+    /**
+     * Wait for the result of some pending work
+     *
+     * @param pending work
+     * @param <V>     result type
+     * @return the result of the work
+     */
+    private static <V> V await(final CompletableFuture<V> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     /**
-     * Get a list of entities with a maximum size of count, starting at start
+     * Get a list of entities with a maximum size of count, starting at start. When the request joins other tables or
+     * the list fetches an entity graph, the list is fetched in two phases, first the ordered page of IDs and then the
+     * entities with those IDs, so that neither the database nor hibernate paginates the joined entity rows
      *
      * @param count max # of entities to getSingle
      * @param start which entity to start at
      * @return a list of type T from the database
      */
+    @SuppressWarnings("unchecked")
     private List<T> getListOfEntities(final Integer count, final int start) {
         if (count != null && count <= 0) {
             return Collections.emptyList();
         }
 
-        final EntityManager em = getEntityManager();
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Object> cq = cb.createQuery();
+        final Root<T> from = cq.from(getEntityClass());
+        restrictListQuery(cq, from);
+
+        // collections in the graph are fetched by joining, so the entities cannot be paginated in the same query
+        final EntityGraph<T> graph = getEntityGraph(LIST);
+        if (from.getJoins().isEmpty() && graph == null) {
+            return (List<T>) (List<?>) page(em.createQuery(cq.select(from)), count, start).getResultList();
+        }
+
+        // sort keys are selected after the ID, since distinct queries must select what they are ordered by
+        final List<Selection<?>> selections = new LinkedList<>();
+        selections.add(from.get(BaseEntity_.id));
+        cq.getOrderList().forEach(order -> selections.add(order.getExpression()));
+
+        final Set<UUID> ids = new LinkedHashSet<>();
+        for (final Object row : page(em.createQuery(cq.multiselect(selections)), count, start).getResultList()) {
+            ids.add((UUID) (row instanceof Object[] ? ((Object[]) row)[0] : row));
+        }
+
+        return getEntitiesInOrder(ids, graph);
+    }
+
+    /**
+     * Load the entities of a page whose IDs were selected separately, so that collections in the entity graph can be
+     * fetched without the page being computed in memory
+     *
+     * @param ids   of the entities, in the order of the page
+     * @param graph entity graph to fetch, or null
+     * @return the entities in the order of their IDs
+     */
+    private List<T> getEntitiesInOrder(final Collection<UUID> ids, final EntityGraph<T> graph) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<UUID, T> entities = QueryHelper.queryByIds(entityManager(), getEntityClass(), ids,
+                graph != null ? Collections.singletonMap(QueryHints.HINT_LOADGRAPH, graph) : Collections.emptyMap())
+                .stream().collect(Collectors.toMap(BaseEntity::getId, Function.identity()));
+
+        return ids.stream().map(entities::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Limit a list query to a page
+     *
+     * @param query to limit
+     * @param count max # of results, or null for all of them
+     * @param start the first result to return
+     * @param <X>   result type of the query
+     * @return the query
+     */
+    private static <X> TypedQuery<X> page(final TypedQuery<X> query, final Integer count, final int start) {
+        query.setFirstResult(start);
+        if (count != null) {
+            query.setMaxResults(count);
+        }
+        return query;
+    }
+
+    /**
+     * Check the requested fields against the basic attributes of the entity
+     *
+     * @param fields requested by the client
+     * @return the fields to select, which always include the ID
+     * @throws RequestProcessingException if any of the fields is not a basic attribute of the entity
+     */
+    private Set<String> getSelectedFields(final Set<String> fields) {
+        final EntityDescriptor<T> descriptor = getEntityDescriptor();
+
+        final List<String> invalid = fields.stream().filter(field -> {
+            final EntityDescriptor.AttributePath attributePath = descriptor.getAttributePath(field);
+            return attributePath == null || !attributePath.getJoins().isEmpty();
+        }).collect(Collectors.toList());
+
+        if (!invalid.isEmpty()) {
+            throw new RequestProcessingException(Response.Status.BAD_REQUEST,
+                    format("Invalid fields for %s: %s", getEntityName(), String.join(", ", invalid)));
+        }
+
+        final Set<String> selected = new LinkedHashSet<>();
+        selected.add(BaseEntity_.id.getName());
+        selected.addAll(fields);
+        return selected;
+    }
+
+    /**
+     * Get a page of entities with only some of their fields. Only the fields are selected from the database, and the
+     * entities are built from them so that {@link #beforeSend(List)} sees the same type as for whole entities
+     *
+     * @param fields to select, which must include the ID
+     * @param count  max number of entities to return, or null for all of them
+     * @param start  the first record to return
+     * @return the requested fields of each entity in the page
+     */
+    private List<ObjectNode> getPartialListOfEntities(final Set<String> fields, final Integer count, final int start) {
+        if (count != null && count <= 0) {
+            return Collections.emptyList();
+        }
+
+        return toPartialEntities(page(createPartialListQuery(fields), count, start).getResultList(), fields);
+    }
+
+    /**
+     * Create the query that selects some fields of the entities matching the request, followed by their sort keys
+     *
+     * @param fields to select
+     * @return the query
+     */
+    private TypedQuery<Tuple> createPartialListQuery(final Set<String> fields) {
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<T> from = cq.from(getEntityClass());
+        restrictListQuery(cq, from);
+
+        // sort keys are selected after the fields, since distinct queries must select what they are ordered by
+        final List<Selection<?>> selections = new LinkedList<>();
+        fields.forEach(field -> selections.add(from.get(field)));
+        cq.getOrderList().forEach(order -> selections.add(order.getExpression()));
+
+        return em.createQuery(cq.multiselect(selections));
+    }
+
+    /**
+     * Build entities from rows of selected fields, and return the fields of each entity after
+     * {@link #beforeSend(List)}
+     *
+     * @param rows   selected by {@link #createPartialListQuery(Set)}
+     * @param fields that were selected
+     * @return the fields of each entity
+     */
+    private List<ObjectNode> toPartialEntities(final List<Tuple> rows, final Set<String> fields) {
+        final ObjectMapper mapper = getObjectMapper();
+        final List<T> entities = new ArrayList<>();
+        for (final Tuple row : rows) {
+            final ObjectNode node = mapper.createObjectNode();
+            int i = 0;
+            for (final String field : fields) {
+                node.set(field, mapper.valueToTree(row.get(i++)));
+            }
+            try {
+                entities.add(mapper.treeToValue(node, getEntityClass()));
+            } catch (JsonProcessingException e) {
+                throw new InternalServerErrorException(format("Failed to build %s from fields", getEntityName()), e);
+            }
+        }
+
+        beforeSend(entities);
+
+        return entities.stream().map(entity -> {
+            final ObjectNode node = mapper.valueToTree(entity);
+            node.retain(fields);
+            return node;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Stream the list of entities starting at start to the client in chunks. Each chunk is passed to beforeSend and
+     * written before the persistence context is cleared, so memory use does not grow with the size of the list. The
+     * rows are scrolled in a transaction with a fetch size the driver honors, see
+     * {@link QueryHelper#scroll(EntityManager, org.hibernate.query.Query, int, QueryHelper.ScrollWork)}
+     *
+     * @param start     which entity to start at
+     * @param chunkSize the number of entities to hold in memory at once
+     * @return output that writes the entities as a JSON array
+     */
+    @SuppressWarnings("unchecked")
+    private StreamingOutput streamListOfEntities(final int start, final int chunkSize) {
+        final org.hibernate.query.Query<T> query = createListQuery(null, start)
+                .unwrap(org.hibernate.query.Query.class);
+        final ObjectMapper mapper = getObjectMapper();
+
+        return output -> {
+            final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+            final List<T> chunk = new ArrayList<>(chunkSize);
+
+            generator.writeStartArray();
+            QueryHelper.scroll(entityManager(), query, chunkSize, results -> {
+                while (results.next()) {
+                    chunk.add((T) results.get(0));
+                    if (chunk.size() == chunkSize) {
+                        writeChunk(generator, chunk);
+                    }
+                }
+                writeChunk(generator, chunk);
+            });
+            generator.writeEndArray();
+            generator.flush();
+        };
+    }
+
+    /**
+     * Write a chunk of a streamed list and release it from memory
+     *
+     * @param generator to write the entities to
+     * @param chunk     the entities to write, emptied after they are written
+     * @throws IOException if the client cannot be written to
+     */
+    private void writeChunk(final JsonGenerator generator, final List<T> chunk) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        beforeSend(chunk);
+        for (final T entity : chunk) {
+            generator.writeObject(entity);
+        }
+        generator.flush();
+
+        chunk.clear();
+        entityManager().clear();
+    }
+
+    /**
+     * Get a list of entities with a maximum size of count, starting at start, together with the total count of the
+     * entities that match the predicates. The count is selected with a window function so only one query is made
+     *
+     * @param count max # of entities to get
+     * @param start which entity to start at
+     * @return the entities and the total count, or null if the count cannot be computed in the same query
+     */
+    private CountedList<T> getListOfEntitiesWithTotalCount(final Integer count, final int start) {
+        final EntityManager em = entityManager();
+        if (count == null || count <= 0 || !WindowFunctions.isSupported(em)) {
+            return null;
+        }
+
+        // collections in the graph are fetched by joining, so only the IDs are paginated when there is a graph
+        final EntityGraph<T> graph = getEntityGraph(LIST);
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+        final Root<T> from = cq.from(getEntityClass());
+        restrictListQuery(cq.multiselect(graph == null ? from : from.get(BaseEntity_.id),
+                cb.function(WindowFunctions.COUNT_OVER, Long.class)), from);
+
+        // the window is computed before duplicate rows are removed, so it only counts entities without to-many joins
+        if (hasToManyJoins(from)) {
+            return null;
+        }
+
+        final List<Object[]> rows = em.createQuery(cq).setFirstResult(start).setMaxResults(count).getResultList();
+
+        // past the last page there is no row to read the total from
+        if (rows.isEmpty() && start > 0) {
+            return null;
+        }
+
+        return new CountedList<>(
+                graph == null ?
+                        rows.stream().map(row -> getEntityClass().cast(row[0])).collect(Collectors.toList()) :
+                        getEntitiesInOrder(rows.stream().map(row -> (UUID) row[0]).collect(Collectors.toList()), graph),
+                rows.isEmpty() ? 0L : (Long) rows.get(0)[1]
+        );
+    }
+
+    /**
+     * Count the entities matched by a query, without counting an entity more than once when it is joined to many rows
+     *
+     * @param cb   criteria builder
+     * @param root of the query, with all of its joins
+     * @return the count expression
+     */
+    private static Expression<Long> countOf(final CriteriaBuilder cb, final Root<?> root) {
+        return hasToManyJoins(root) ? cb.countDistinct(root) : cb.count(root);
+    }
+
+    /**
+     * Whether any join made from a query root goes to many rows
+     *
+     * @param from the root or join to check
+     * @return true if the results of the query may contain a row more than once
+     */
+    private static boolean hasToManyJoins(final From<?, ?> from) {
+        return from.getJoins().stream().anyMatch(join -> join instanceof PluralJoin || hasToManyJoins(join));
+    }
+
+    /**
+     * Create the query for a list of entities with a maximum size of count, starting at start
+     *
+     * @param count max # of entities to getSingle
+     * @param start which entity to start at
+     * @return query for the entities
+     */
+    private TypedQuery<T> createListQuery(final Integer count, final int start) {
+        final EntityManager em = entityManager();
         final CriteriaBuilder cb = em.getCriteriaBuilder();
 
         final CriteriaQuery<T> cq = cb.createQuery(getEntityClass());
         final Root<T> from = cq.from(getEntityClass());
-        cq.select(from).distinct(true);
+        restrictListQuery(cq.select(from), from);
+
+        return page(em.createQuery(cq), count, start);
+    }
 
+    /**
+     * Apply the predicates and orders from the request to a list query
+     *
+     * @param cq   the list query
+     * @param from the root of the list query
+     */
+    private void restrictListQuery(final CriteriaQuery<?> cq, final Root<T> from) {
         final Predicate[] predicates = getPredicatesFromRequest(from).stream().toArray(Predicate[]::new);
 
         if (predicates.length > 0) {
@@ -417,83 +2151,144 @@ public abstract class EntityResource<T extends BaseEntity> extends EntityResourc
         }
 
         // parse the request to return the orders that should be applied
-        final Order[] orderBys = getOrderFromRequest(from).stream().toArray(Order[]::new);
+        final Order[] orderBys = toOrders(getSortsFromRequest(from));
         if (orderBys.length > 0) {
             cq.orderBy(orderBys);
         }
 
-        final TypedQuery<T> query = em.createQuery(cq).setFirstResult(start);
+        // rows only need to be collapsed when a join can match more than one row per entity
+        cq.distinct(hasToManyJoins(from));
+    }
+
+    /**
+     * Get a page of entities that come after the row encoded in the cursor. The sort keys of the request are
+     * selected along with the entity, with the ID as a final tie breaker, so that the next cursor can be built from
+     * the last row and the database can seek directly to the page instead of scanning every row before it. Entities
+     * with a LIST entity graph are loaded by the IDs of the page, see {@link #getEntitiesInOrder(Collection, EntityGraph)}
+     *
+     * @param count  max # of entities to get
+     * @param cursor the cursor returned with the previous page, or an empty string for the first page
+     * @return the page of entities and the cursor for the next page
+     */
+    @SuppressWarnings("unchecked")
+    private CursorPage<T> getPageAfterCursor(final Integer count, final String cursor) {
+        if (count != null && count <= 0) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+
+        final EntityManager em = entityManager();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+        final Root<T> from = cq.from(getEntityClass());
+
+        final List<Predicate> predicates = getPredicatesFromRequest(from);
+
+        // the id makes the position of every row unique
+        final List<SortPath> sorts = getSortsFromRequest(from);
+        sorts.add(new SortPath(from.get(BaseEntity_.id), true));
+
+        final List<javax.persistence.criteria.Path<?>> keys = sorts.stream().map(SortPath::getPath)
+                .collect(Collectors.toList());
+
+        if (!cursor.isEmpty()) {
+            final List<Object> values;
+            try {
+                values = KeysetCursor.decode(cursor,
+                        keys.stream().<Class<?>>map(javax.persistence.criteria.Path::getJavaType)
+                                .collect(Collectors.toList()));
+            } catch (IllegalArgumentException e) {
+                LOG.log(Level.WARNING, "Invalid cursor query parameter received", e);
+                throw new RequestProcessingException(Response.Status.BAD_REQUEST, "Invalid cursor");
+            }
+
+            predicates.add(KeysetCursor.after(cb, keys,
+                    sorts.stream().map(SortPath::isAscending).collect(Collectors.toList()), values,
+                    KeysetCursor.isNullFirst(em)));
+        }
+
+        // collections in the graph are fetched by joining, so only the IDs are paginated when there is a graph
+        final EntityGraph<T> graph = getEntityGraph(LIST);
+
+        final List<Selection<?>> selections = new ArrayList<>(keys.size() + 1);
+        selections.add(graph == null ? from : from.get(BaseEntity_.id));
+        selections.addAll(keys);
 
+        cq.multiselect(selections).distinct(true)
+                .where(predicates.stream().toArray(Predicate[]::new))
+                .orderBy(toOrders(sorts));
+
+        final TypedQuery<Object[]> query = em.createQuery(cq);
         if (count != null) {
             query.setMaxResults(count);
         }
 
-        return query.getResultList();
+        final List<Object[]> rows = query.getResultList();
+
+        final List<T> entities;
+        if (graph == null) {
+            entities = rows.stream().map(row -> (T) row[0]).collect(Collectors.toList());
+        } else {
+            entities = getEntitiesInOrder(rows.stream().map(row -> (UUID) row[0]).collect(Collectors.toList()), graph);
+        }
+
+        // a full page means there may be more rows after the last one
+        final String nextCursor = count != null && !rows.isEmpty() && rows.size() == count ?
+                KeysetCursor.encode(Arrays.asList(rows.get(rows.size() - 1)).subList(1, keys.size() + 1)) :
+                null;
+
+        return new CursorPage<>(entities, nextCursor);
     }
 
     /**
-     * Get a list of Orders from the request
+     * Convert resolved sorts to the orders applied to a query
      *
-     * @param from the root of the query
-     * @return a list of orders
+     * @param sorts to convert
+     * @return orders in the same sequence as the sorts
      */
-    private List<Order> getOrderFromRequest(final Root<T> from) {
-        final List<Order> orders = new LinkedList<>();
-        getOrderFromRequest(from, orders);
-        return orders;
+    private Order[] toOrders(final List<SortPath> sorts) {
+        final CriteriaBuilder cb = entityManager().getCriteriaBuilder();
+        return sorts.stream()
+                .map(sort -> sort.isAscending() ? cb.asc(sort.getPath()) : cb.desc(sort.getPath()))
+                .toArray(Order[]::new);
     }
 
     /**
-     * Resolves sorting orders from the request by matching them to attribute on the model
+     * Resolves sorting orders from the request by matching them to the sortable attributes of the entity descriptor.
+     * Sorts that share a join path share the join
      *
      * @param from root of the query
+     * @return the paths to sort by, in order of precedence
      */
-    // TODO: refactor sort query parameter parsing
-    private void getOrderFromRequest(final Root<T> from, final List<Order> orders) {
-        final SortParameterConfiguration sortConfig = getSortConfiguration();
-        final List<SortInfo> sorts = SortInfo.from(
-                getQueryParameters(sortConfig.getQueryParameterName()),
-                sortConfig.getSortInfoSeparator(),
-                sortConfig.getSortPathSeparator()
-        );
+    private List<SortPath> getSortsFromRequest(final Root<T> from) {
+        final List<SortPath> resolved = new LinkedList<>();
 
-        if (sorts == null || sorts.isEmpty()) {
-            return;
+        final List<SortInfo> sorts = getListQuerySpec().getSorts();
+        if (sorts.isEmpty()) {
+            return resolved;
         }
 
-        final CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
+        final short maxSorts = getSortConfiguration().getMaxSorts();
+
+        final EntityDescriptor<T> descriptor = getEntityDescriptor();
+        final Map<String, From<?, ?>> joins = new HashMap<>();
 
         for (final SortInfo sort : sorts) {
-            if (orders.size() > sortConfig.getMaxSorts()) {
-                return;
+            if (resolved.size() > maxSorts) {
+                return resolved;
             }
 
-            javax.persistence.criteria.Path sortBy;
-            try {
-                final LinkedList<String> sortAttributePieces = new LinkedList<>(Arrays.asList(sort.getPath()));
-
-                if (sortAttributePieces.size() > 1) {
-                    Join j = from.join(sortAttributePieces.pop(), JoinType.LEFT);
-                    while (sortAttributePieces.size() > 1) {
-                        final String attribute = sortAttributePieces.pop();
-                        j = j.join(attribute, JoinType.LEFT);
-                    }
-                    sortBy = j.get(sortAttributePieces.get(0));
-                } else {
-                    sortBy = from.get(sortAttributePieces.get(0));
-                }
-
-            } catch (IllegalArgumentException e) {
-                LOG.log(Level.WARNING, "Failed to parse sort", e);
+            final String path = String.join(".", sort.getPath());
+            final EntityDescriptor.AttributePath attributePath = descriptor.getAttributePath(path);
+            if (attributePath == null) {
+                LOG.log(Level.WARNING, "Invalid sort path received: " + path);
                 continue;
             }
 
-            if (sort.isAscending()) {
-                orders.add(cb.asc(sortBy));
-            } else {
-                orders.add(cb.desc(sortBy));
-            }
+            resolved.add(new SortPath(descriptor.resolve(from, attributePath, joins), sort.isAscending()));
         }
+
+        return resolved;
     }
 
     /**
@@ -518,5 +2313,66 @@ public abstract class EntityResource<T extends BaseEntity> extends EntityResourc
                 format("%s with ID %s not found", getEntityName(), id));
     }
 
-}
+    /**
+     * A sort from the request resolved against the root of a query
+     */
+    private static class SortPath {
+        private final javax.persistence.criteria.Path<?> path;
+        private final boolean ascending;
+
+        private SortPath(final javax.persistence.criteria.Path<?> path, final boolean ascending) {
+            this.path = path;
+            this.ascending = ascending;
+        }
+
+        javax.persistence.criteria.Path<?> getPath() {
+            return path;
+        }
+
+        boolean isAscending() {
+            return ascending;
+        }
+    }
+
+    /**
+     * A list of entities and the total count of the entities that match the request
+     */
+    private static class CountedList<T> {
+        private final List<T> entities;
+        private final Long totalCount;
+
+        private CountedList(final List<T> entities, final Long totalCount) {
+            this.entities = entities;
+            this.totalCount = totalCount;
+        }
+
+        List<T> getEntities() {
+            return entities;
+        }
+
+        Long getTotalCount() {
+            return totalCount;
+        }
+    }
+
+    /**
+     * A page of entities fetched with keyset pagination
+     */
+    private static class CursorPage<T> {
+        private final List<T> entities;
+        private final String nextCursor;
+
+        private CursorPage(final List<T> entities, final String nextCursor) {
+            this.entities = entities;
+            this.nextCursor = nextCursor;
+        }
+
+        List<T> getEntities() {
+            return entities;
+        }
 
+        String getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.moodysalem.jaxrs.lib.resources;
 
 import com.moodysalem.hibernate.model.VersionedEntity;
+import com.moodysalem.hibernate.model.VersionedEntity_;
 import com.moodysalem.jaxrs.lib.exceptionmappers.RequestError;
 import com.moodysalem.jaxrs.lib.exceptions.RequestProcessingException;
+import com.moodysalem.jaxrs.lib.resources.util.ListValidator;
 
+import javax.persistence.metamodel.SingularAttribute;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import java.util.LinkedList;
 import java.util.List;
@@ -11,6 +16,65 @@ import java.util.Map;
 import java.util.UUID;
 
 public abstract class VersionedEntityResource<T extends VersionedEntity> extends EntityResource<T> {
+    /**
+     * The version changes with every update, so the id and version strongly identify the stored state of an entity
+     */
+    @Override
+    protected EntityTag getEntityTag(final T entity) {
+        return entityTag(entity.getId(), entity.getVersion());
+    }
+
+    /**
+     * Select only the version of the entity, which is enough to answer If-None-Match requests
+     */
+    @Override
+    protected EntityTag getCurrentEntityTag(final UUID id) {
+        final Long version = getAttributeOfEntityWithId(id, VersionedEntity_.version);
+        return version != null ? entityTag(id, version) : null;
+    }
+
+    /**
+     * The expected version is read from an If-Match tag of the entity, and a tag of another entity never matches
+     */
+    @Override
+    protected Long getExpectedVersion(final UUID id) {
+        final String ifMatch = getContainerRequestContext().getHeaderString(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        final String prefix = id + "-";
+        for (final String tag : ifMatch.split(",")) {
+            try {
+                final String value = EntityTag.valueOf(tag.trim()).getValue();
+                if (value.startsWith(prefix)) {
+                    return Long.parseLong(value.substring(prefix.length()));
+                }
+            } catch (IllegalArgumentException ignored) {
+                // not a tag of this resource
+            }
+        }
+
+        throw versionCheckFailed(id);
+    }
+
+    @Override
+    protected SingularAttribute<? super T, Long> getVersionAttribute() {
+        return VersionedEntity_.version;
+    }
+
+    /**
+     * Lists are summarized by the latest update time and count of the matching entities
+     */
+    @Override
+    protected ListValidator getListValidator() {
+        return getListValidator(VersionedEntity_.updated);
+    }
+
+    private static EntityTag entityTag(final UUID id, final long version) {
+        return new EntityTag(id + "-" + version);
+    }
+
     @Override
     protected void verifyCanMergeData(List<T> list, Map<UUID, T> oldData) {
         super.verifyCanMergeData(list, oldData);
@@ -0,0 +1,51 @@
+package com.moodysalem.jaxrs.lib.resources.config;
+
+import java.util.Objects;
+
+/**
+ * Value type that contains information about how the total count of a list should be computed for a particular
+ * entity resource
+ */
+public class CountConfiguration {
+    public static CountConfiguration DEFAULT = new CountConfiguration(CountStrategy.EXACT, "countStrategy", 30000);
+
+    private final CountStrategy defaultStrategy;
+    private final String queryParameterName;
+    private final long cacheMillis;
+
+    public CountConfiguration(CountStrategy defaultStrategy, String queryParameterName, long cacheMillis) {
+        this.defaultStrategy = defaultStrategy;
+        this.queryParameterName = queryParameterName;
+        this.cacheMillis = cacheMillis;
+    }
+
+    public CountStrategy getDefaultStrategy() {
+        return defaultStrategy;
+    }
+
+    // the query parameter used to request a strategy no more expensive than the default, or null if requests cannot
+    // choose
+    public String getQueryParameterName() {
+        return queryParameterName;
+    }
+
+    // how long cached counts are reused
+    public long getCacheMillis() {
+        return cacheMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountConfiguration that = (CountConfiguration) o;
+        return getCacheMillis() == that.getCacheMillis() &&
+                getDefaultStrategy() == that.getDefaultStrategy() &&
+                Objects.equals(getQueryParameterName(), that.getQueryParameterName());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getDefaultStrategy(), getQueryParameterName(), getCacheMillis());
+    }
+}
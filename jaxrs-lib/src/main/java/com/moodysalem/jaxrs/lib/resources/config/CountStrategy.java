@@ -0,0 +1,29 @@
+package com.moodysalem.jaxrs.lib.resources.config;
+
+/**
+ * The ways in which the total count of a list of entities can be computed
+ */
+public enum CountStrategy {
+    // do not compute the total count
+    NONE(0),
+    // count the matching rows on every request
+    EXACT(3),
+    // count the matching rows and reuse the count for identical queries until it expires
+    CACHED(2),
+    // count the matching rows with a window function in the same query as the page when the database supports it,
+    // otherwise count the matching rows in a separate query
+    WINDOW(3),
+    // use the row count statistics of the database for unfiltered lists, otherwise count the matching rows
+    ESTIMATED(1);
+
+    private final int cost;
+
+    CountStrategy(final int cost) {
+        this.cost = cost;
+    }
+
+    // whether the strategy never does more work than another strategy
+    public boolean isNoMoreExpensiveThan(final CountStrategy other) {
+        return cost <= other.cost;
+    }
+}
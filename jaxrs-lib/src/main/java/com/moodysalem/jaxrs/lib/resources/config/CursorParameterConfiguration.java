@@ -0,0 +1,40 @@
+package com.moodysalem.jaxrs.lib.resources.config;
+
+import java.util.Objects;
+
+/**
+ * Value type that contains information about how keyset (cursor) pagination should be handled for a particular entity
+ * resource
+ */
+public class CursorParameterConfiguration {
+    public static CursorParameterConfiguration DEFAULT = new CursorParameterConfiguration("cursor", "X-Next-Cursor");
+
+    private final String queryParameterName, nextCursorHeader;
+
+    public CursorParameterConfiguration(String queryParameterName, String nextCursorHeader) {
+        this.queryParameterName = queryParameterName;
+        this.nextCursorHeader = nextCursorHeader;
+    }
+
+    public String getQueryParameterName() {
+        return queryParameterName;
+    }
+
+    public String getNextCursorHeader() {
+        return nextCursorHeader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CursorParameterConfiguration that = (CursorParameterConfiguration) o;
+        return Objects.equals(getQueryParameterName(), that.getQueryParameterName()) &&
+                Objects.equals(getNextCursorHeader(), that.getNextCursorHeader());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getQueryParameterName(), getNextCursorHeader());
+    }
+}
@@ -1,12 +1,19 @@
 package com.moodysalem.jaxrs.lib.resources.config;
 
 import com.moodysalem.hibernate.model.BaseEntity;
+import com.moodysalem.jaxrs.lib.factories.JAXRSEntityManagerFactory;
+import com.moodysalem.jaxrs.lib.resources.util.EntityDescriptor;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.ws.rs.container.ContainerRequestContext;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * This is the configuration of an entity resource - usually only created once per entity resource+
@@ -30,6 +37,15 @@ public abstract class EntityResourceConfig<T extends BaseEntity> {
         return getEntityClass().getSimpleName();
     }
 
+    /**
+     * Return the description of the attributes of the entity, which is built once per entity class
+     *
+     * @return the entity descriptor
+     */
+    public EntityDescriptor<T> getEntityDescriptor() {
+        return EntityDescriptor.of(getEntityManager().getMetamodel(), getEntityClass());
+    }
+
     /**
      * Return the sorting configuration for the resource
      *
@@ -48,6 +64,196 @@ public abstract class EntityResourceConfig<T extends BaseEntity> {
         return PaginationParameterConfiguration.DEFAULT;
     }
 
+    /**
+     * Return the keyset pagination configuration for the resource
+     *
+     * @return the cursor configuration, or null if cursor pagination is not allowed
+     */
+    public CursorParameterConfiguration getCursorConfiguration() {
+        return CursorParameterConfiguration.DEFAULT;
+    }
+
+    /**
+     * Return the sparse fieldset configuration for the resource. Lists requested with fields select only those basic
+     * attributes of the entity, and do not load any collections. Fields do not apply to keyset pagination
+     *
+     * @return the fields configuration, or null if fields cannot be requested
+     */
+    public FieldsParameterConfiguration getFieldsConfiguration() {
+        return FieldsParameterConfiguration.DEFAULT;
+    }
+
+    /**
+     * Return the configuration for computing the total count of lists
+     *
+     * @return the count configuration
+     */
+    public CountConfiguration getCountConfiguration() {
+        return CountConfiguration.DEFAULT;
+    }
+
+    /**
+     * Return the factory used to count lists on a separate, read only entity manager while the page of the list is
+     * fetched. It must create entity managers for the same persistence unit as {@link #getEntityManager()}
+     *
+     * @return the factory, or null to count lists on the entity manager of the request after the page is fetched
+     */
+    public JAXRSEntityManagerFactory getCountEntityManagerFactory() {
+        return null;
+    }
+
+    /**
+     * Return the factory of the read only entity managers that lists and single entities are loaded with, which may
+     * read from replicas of the database. Clients read from the primary for the read your writes window of the
+     * factory after they save or delete. It must create entity managers for the same persistence unit as
+     * {@link #getEntityManager()}
+     *
+     * @return the factory, or null to load entities with the entity manager of the request
+     */
+    public JAXRSEntityManagerFactory getReadEntityManagerFactory() {
+        return null;
+    }
+
+    /**
+     * Return the number of entities that are loaded at a time when a list is requested without a page size. Such
+     * lists are streamed to the client with a forward only cursor so they never have to fit in memory
+     *
+     * @return the number of entities per chunk, or null to load unbounded lists before sending them
+     */
+    public Integer getStreamChunkSize() {
+        return null;
+    }
+
+    /**
+     * Return the graph of associations and collections to fetch along with the entities of an action, so that they
+     * are not loaded one entity at a time when the entities are serialized. The graph applies to the entities loaded
+     * for paginated lists and for single entities, and is fetched as a load graph
+     *
+     * @param action for which entities are loaded, such as LIST or GET_SINGLE
+     * @return the graph, or null to fetch only what the mappings fetch eagerly
+     */
+    public EntityGraph<T> getEntityGraph(final Action action) {
+        return null;
+    }
+
+    /**
+     * Return whether single entities are looked up by ID through the second level cache. The entity must be marked
+     * {@link javax.persistence.Cacheable} and the entity manager factory built with a second level cache. Entities
+     * served from the cache are still checked against the predicates of the request, with a query that selects only
+     * the ID when there are any
+     *
+     * @return true to look up single entities through the second level cache
+     */
+    public boolean isIdLookupCached() {
+        return false;
+    }
+
+    /**
+     * Return whether saves respond with the entities that were merged instead of querying them again after the
+     * transaction commits. Versions and timestamps set by the entity callbacks are current after the flush, but
+     * values computed by the database, such as column defaults or triggers, are not read back
+     *
+     * @return true to respond with the merged entities
+     */
+    public boolean isReturnMerged() {
+        return false;
+    }
+
+    /**
+     * Return the number of entities saved per transaction when entities are imported one per line. The persistence
+     * context is cleared after each chunk, so the memory used by an import does not grow with the number of lines
+     *
+     * @return the number of entities per chunk
+     */
+    public int getImportChunkSize() {
+        return 500;
+    }
+
+    /**
+     * Return the number of rows fetched from the database at a time when the entities matching a list request are
+     * exported as newline delimited JSON or CSV. Exports are not paginated, so they are only allowed when this is set
+     *
+     * @return the JDBC fetch size of exports, or null if lists cannot be exported
+     */
+    public Integer getExportChunkSize() {
+        return null;
+    }
+
+    /**
+     * Return the executor that runs the work of requests, so that container threads are released while the
+     * database is queried. The entity manager and the other request scoped objects of the request are handed off to
+     * the thread that runs the work. See {@link com.moodysalem.jaxrs.lib.resources.util.RequestExecutors}
+     *
+     * @return the executor, shared by every request to the resource, or null to run requests on the container threads
+     */
+    public Executor getRequestExecutor() {
+        return null;
+    }
+
+    /**
+     * Return how long the client waits for the response to an action before the request fails with 503. Work that
+     * has not started when the request times out is skipped, but work that has started runs to completion. Only
+     * {@link Action#LIST} and {@link Action#GET_SINGLE} time out, since a write that completes after its request
+     * failed would be repeated by a client that retries
+     *
+     * @param action of the request
+     * @return the timeout in milliseconds, or null to wait indefinitely
+     */
+    public Long getTimeout(final Action action) {
+        return null;
+    }
+
+    /**
+     * Return whether deleting all the entities matching a request deletes them in bulk instead of loading each one to
+     * check {@link #canDelete}. Bulk deletes are authorized by {@link #getCannotDeletePredicate}, and delete the
+     * entities by ID in chunks that are each committed in their own transaction. Entities with collections or
+     * cascades are loaded and removed a chunk at a time, others are deleted with a single statement per chunk that
+     * does not run entity callbacks. Without a {@link #getCannotDeletePredicate}, lists are loaded and checked with
+     * {@link #getCannotDelete} as if bulk deletes were off
+     *
+     * @return true to delete lists in bulk
+     */
+    public boolean isBulkDelete() {
+        return false;
+    }
+
+    /**
+     * Return a predicate matching the entities that cannot be deleted, the set based equivalent of
+     * {@link #canDelete}. It authorizes bulk deletes, and when it is set, deletes of lists check it with a single
+     * query instead of calling {@link #getCannotDelete}. Entities for which the predicate is null can be deleted
+     *
+     * @param root of the query for the entities to delete
+     * @return the predicate, or null if any entity matching the request can be deleted
+     */
+    public Predicate getCannotDeletePredicate(final Root<T> root) {
+        return null;
+    }
+
+    /**
+     * Return the entities of a save that cannot be saved, the set based equivalent of {@link #canMerge} that lets a
+     * resource authorize a whole save with one query. By default each entity is checked with {@link #canMerge}
+     *
+     * @param list    of entities being saved
+     * @param oldData the stored entities with the IDs in the list, by ID
+     * @return the entities of the list that cannot be saved
+     */
+    public List<T> getCannotMerge(final List<T> list, final Map<UUID, T> oldData) {
+        return list.stream()
+                .filter(entity -> !canMerge(entity.getId() != null ? oldData.get(entity.getId()) : null, entity))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Return the entities that cannot be deleted, the set based equivalent of {@link #canDelete}. By default each
+     * entity is checked with {@link #canDelete}
+     *
+     * @param toDelete the entities being deleted
+     * @return the entities that cannot be deleted
+     */
+    public List<T> getCannotDelete(final List<T> toDelete) {
+        return toDelete.stream().filter(entity -> !canDelete(entity)).collect(Collectors.toList());
+    }
+
     // whether the entity can be created
     public abstract boolean canMerge(final T oldData, final T newData);
 
@@ -0,0 +1,48 @@
+package com.moodysalem.jaxrs.lib.resources.config;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Value type that contains information about how the fields of a sparse list should be requested for a particular
+ * entity resource
+ */
+public class FieldsParameterConfiguration {
+    public static FieldsParameterConfiguration DEFAULT = new FieldsParameterConfiguration("fields", ",");
+
+    private final String queryParameterName, fieldSeparator;
+    private final Pattern fieldPattern;
+
+    public FieldsParameterConfiguration(String queryParameterName, String fieldSeparator) {
+        this.queryParameterName = queryParameterName;
+        this.fieldSeparator = fieldSeparator;
+        this.fieldPattern = Pattern.compile(Pattern.quote(fieldSeparator));
+    }
+
+    public String getQueryParameterName() {
+        return queryParameterName;
+    }
+
+    public String getFieldSeparator() {
+        return fieldSeparator;
+    }
+
+    // the compiled field separator, for splitting query parameter values
+    public Pattern getFieldPattern() {
+        return fieldPattern;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FieldsParameterConfiguration that = (FieldsParameterConfiguration) o;
+        return Objects.equals(getQueryParameterName(), that.getQueryParameterName()) &&
+                Objects.equals(getFieldSeparator(), that.getFieldSeparator());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getQueryParameterName(), getFieldSeparator());
+    }
+}
@@ -1,18 +1,24 @@
 package com.moodysalem.jaxrs.lib.resources.config;
 
+import java.util.Objects;
+import java.util.regex.Pattern;
+
 /**
  * Value type that contains information about how the sorting should be handled for a particular entity resource
  */
 public class SortParameterConfiguration {
-    public static SortParameterConfiguration DEFAULT = new SortParameterConfiguration("sort", "\\|", "\\.", (short) 3);
+    public static SortParameterConfiguration DEFAULT = new SortParameterConfiguration("sort", "|", ".", (short) 3);
 
     private final String queryParameterName, sortInfoSeparator, sortPathSeparator;
+    private final Pattern sortInfoPattern, sortPathPattern;
     private final short maxSorts;
 
     public SortParameterConfiguration(String queryParameterName, String sortInfoSeparator, String sortPathSeparator, short maxSorts) {
         this.queryParameterName = queryParameterName;
         this.sortInfoSeparator = sortInfoSeparator;
         this.sortPathSeparator = sortPathSeparator;
+        this.sortInfoPattern = Pattern.compile(Pattern.quote(sortInfoSeparator));
+        this.sortPathPattern = Pattern.compile(Pattern.quote(sortPathSeparator));
         this.maxSorts = maxSorts;
     }
 
@@ -28,7 +34,31 @@ public class SortParameterConfiguration {
         return sortPathSeparator;
     }
 
+    public Pattern getSortInfoPattern() {
+        return sortInfoPattern;
+    }
+
+    public Pattern getSortPathPattern() {
+        return sortPathPattern;
+    }
+
     public short getMaxSorts() {
         return maxSorts;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SortParameterConfiguration that = (SortParameterConfiguration) o;
+        return getMaxSorts() == that.getMaxSorts() &&
+                Objects.equals(getQueryParameterName(), that.getQueryParameterName()) &&
+                Objects.equals(getSortInfoSeparator(), that.getSortInfoSeparator()) &&
+                Objects.equals(getSortPathSeparator(), that.getSortPathSeparator());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getQueryParameterName(), getSortInfoSeparator(), getSortPathSeparator(), getMaxSorts());
+    }
 }
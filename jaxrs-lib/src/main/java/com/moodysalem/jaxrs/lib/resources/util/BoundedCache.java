@@ -0,0 +1,87 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe, size bounded cache that evicts the least recently used entry once it is full. Entries may also
+ * be given a time to live after which they are no longer returned
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+    private static class Entry<V> {
+        private final V value;
+        private final long expires;
+
+        private Entry(final V value, final long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private final Map<K, Entry<V>> entries;
+
+    public BoundedCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the value stored for a key
+     *
+     * @param key to look up
+     * @return the value, or null if there is none or it has expired
+     */
+    public synchronized V get(final K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expires < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Store a value that does not expire
+     *
+     * @param key   to store the value under
+     * @param value to store
+     */
+    public void put(final K key, final V value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * Store a value
+     *
+     * @param key       to store the value under
+     * @param value     to store
+     * @param ttlMillis how long the value is returned for, or 0 if it does not expire
+     */
+    public synchronized void put(final K key, final V value, final long ttlMillis) {
+        entries.put(key, new Entry<>(value, ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE));
+    }
+
+    /**
+     * Remove the value stored for a key
+     *
+     * @param key to remove
+     */
+    public synchronized void remove(final K key) {
+        entries.remove(key);
+    }
+}
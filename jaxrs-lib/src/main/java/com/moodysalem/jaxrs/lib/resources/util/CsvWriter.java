@@ -0,0 +1,58 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.regex.Pattern;
+
+/**
+ * Writes rows of comma separated values as described in RFC 4180
+ */
+public class CsvWriter {
+    public static final String MEDIA_TYPE = "text/csv";
+
+    private static final Pattern NEEDS_QUOTES = Pattern.compile("[,\"\r\n]");
+
+    /**
+     * Quote a value if it contains a separator, a quote or a line break
+     *
+     * @param value to escape
+     * @return the value as it is written in a row, where null is written as an empty value
+     */
+    public static String escape(final String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!NEEDS_QUOTES.matcher(value).find()) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private final Writer writer;
+
+    public CsvWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write a row of values, ended by a CRLF
+     *
+     * @param values of the row
+     * @throws IOException if the row cannot be written
+     */
+    public void writeRow(final Iterable<String> values) throws IOException {
+        boolean first = true;
+        for (final String value : values) {
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write(escape(value));
+            first = false;
+        }
+        writer.write("\r\n");
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
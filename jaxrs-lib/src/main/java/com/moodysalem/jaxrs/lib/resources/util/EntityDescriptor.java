@@ -0,0 +1,169 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.metamodel.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes the attributes of an entity that can be used in queries built from requests. It is computed once per
+ * entity class from the JPA metamodel, so that requests look up attribute paths in a table rather than probing the
+ * metamodel. Only singular associations are followed, so every path has at most one value per entity
+ *
+ * @param <T> entity type
+ */
+public class EntityDescriptor<T> {
+    // the deepest chain of joins that is followed from the entity
+    private static final int MAX_JOIN_DEPTH = 3;
+
+    private static final Map<Class<?>, EntityDescriptor<?>> DESCRIPTORS = new ConcurrentHashMap<>();
+
+    /**
+     * Get the descriptor of an entity class, building it the first time it is requested
+     *
+     * @param metamodel   of the persistence unit containing the entity
+     * @param entityClass to describe
+     * @param <T>         entity type
+     * @return the descriptor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityDescriptor<T> of(final Metamodel metamodel, final Class<T> entityClass) {
+        return (EntityDescriptor<T>) DESCRIPTORS.computeIfAbsent(entityClass,
+                clazz -> new EntityDescriptor<>(metamodel.entity(entityClass)));
+    }
+
+    /**
+     * A join from the root of a query, or from another join
+     */
+    public static class JoinStep {
+        private final String path, attribute;
+
+        private JoinStep(final String path, final String attribute) {
+            this.path = path;
+            this.attribute = attribute;
+        }
+
+        // the dotted path of the join from the root, which identifies joins that can be shared
+        public String getPath() {
+            return path;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+    }
+
+    /**
+     * A basic attribute that can be reached from the root of a query, and the joins needed to reach it
+     */
+    public static class AttributePath {
+        private final String path, attribute;
+        private final List<JoinStep> joins;
+        private final Class<?> javaType;
+
+        private AttributePath(final String path, final String attribute, final List<JoinStep> joins,
+                              final Class<?> javaType) {
+            this.path = path;
+            this.attribute = attribute;
+            this.joins = Collections.unmodifiableList(new ArrayList<>(joins));
+            this.javaType = javaType;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        public List<JoinStep> getJoins() {
+            return joins;
+        }
+
+        public Class<?> getJavaType() {
+            return javaType;
+        }
+    }
+
+    private final Map<String, AttributePath> attributePaths;
+
+    private EntityDescriptor(final EntityType<T> entityType) {
+        final Map<String, AttributePath> paths = new LinkedHashMap<>();
+        describe(entityType, "", new LinkedList<>(), paths);
+        this.attributePaths = Collections.unmodifiableMap(paths);
+    }
+
+    /**
+     * Add the basic attributes of a type to the paths, and follow its singular associations to their basic attributes.
+     * Collections are not followed, since sorting by or selecting a value of many rows is ambiguous
+     *
+     * @param type   to describe
+     * @param prefix the dotted path to the type
+     * @param joins  the joins made to reach the type
+     * @param paths  the paths described so far
+     */
+    private static void describe(final ManagedType<?> type, final String prefix, final LinkedList<JoinStep> joins,
+                                 final Map<String, AttributePath> paths) {
+        for (final Attribute<?, ?> attribute : type.getAttributes()) {
+            final String path = prefix + attribute.getName();
+
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                paths.put(path, new AttributePath(path, attribute.getName(), joins, attribute.getJavaType()));
+                continue;
+            }
+
+            if (attribute.isCollection() || joins.size() >= MAX_JOIN_DEPTH) {
+                continue;
+            }
+
+            final Type<?> target = ((SingularAttribute<?, ?>) attribute).getType();
+            if (!(target instanceof ManagedType)) {
+                continue;
+            }
+
+            joins.addLast(new JoinStep(path, attribute.getName()));
+            describe((ManagedType<?>) target, path + ".", joins, paths);
+            joins.removeLast();
+        }
+    }
+
+    /**
+     * Get the description of the basic attribute at a dotted path
+     *
+     * @param path of the attribute from the entity
+     * @return the description, or null if there is no basic attribute at the path
+     */
+    public AttributePath getAttributePath(final String path) {
+        return attributePaths.get(path);
+    }
+
+    /**
+     * Get all the basic attributes that can be reached from the entity, keyed by their dotted paths
+     *
+     * @return the attribute paths
+     */
+    public Map<String, AttributePath> getAttributePaths() {
+        return attributePaths;
+    }
+
+    /**
+     * Resolve an attribute against the root of a query, reusing any joins already made for other attributes
+     *
+     * @param root          of the query
+     * @param attributePath to resolve
+     * @param joins         the joins made so far for the query, keyed by their paths
+     * @return the path of the attribute in the query
+     */
+    public Path<?> resolve(final From<?, T> root, final AttributePath attributePath,
+                           final Map<String, From<?, ?>> joins) {
+        From<?, ?> from = root;
+        for (final JoinStep step : attributePath.getJoins()) {
+            final From<?, ?> parent = from;
+            from = joins.computeIfAbsent(step.getPath(), path -> parent.join(step.getAttribute(), JoinType.LEFT));
+        }
+        return from.get(attributePath.getAttribute());
+    }
+}
@@ -0,0 +1,59 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.moodysalem.hibernate.model.BaseEntity;
+import com.moodysalem.hibernate.model.VersionedEntity;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The minimal representation of a saved entity, returned instead of the entity when the client prefers a minimal
+ * response
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntityReference {
+    /**
+     * Reference an entity by its ID, and its version if it is versioned
+     *
+     * @param entity to reference
+     * @return the reference
+     */
+    public static EntityReference of(final BaseEntity entity) {
+        return new EntityReference(entity.getId(),
+                entity instanceof VersionedEntity ? ((VersionedEntity) entity).getVersion() : null);
+    }
+
+    private final UUID id;
+    private final Long version;
+
+    public EntityReference(@JsonProperty("id") UUID id,
+                           @JsonProperty("version") Long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    // the version of the entity, or null if the entity is not versioned
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EntityReference that = (EntityReference) o;
+        return Objects.equals(getId(), that.getId()) &&
+                Objects.equals(getVersion(), that.getVersion());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), getVersion());
+    }
+}
@@ -0,0 +1,108 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.moodysalem.jaxrs.lib.exceptionmappers.RequestError;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The result of importing entities one per line, which counts the imported and failed lines and reports the errors
+ * of the failed lines. Only the first errors are kept, so that the report stays small however many lines fail
+ */
+public class ImportReport {
+    // the most failed lines that are reported
+    public static final int MAX_REPORTED_LINES = 1000;
+
+    /**
+     * The errors of a line that was not imported
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LineError {
+        private final long line;
+        private final UUID id;
+        private final Set<RequestError> requestErrors;
+
+        private LineError(final long line, final UUID id, final Set<RequestError> requestErrors) {
+            this.line = line;
+            this.id = id;
+            this.requestErrors = Collections.unmodifiableSet(requestErrors);
+        }
+
+        // the line number in the request body, starting from 1
+        public long getLine() {
+            return line;
+        }
+
+        // the ID of the entity on the line, if it could be parsed and had one
+        public UUID getId() {
+            return id;
+        }
+
+        public Set<RequestError> getRequestErrors() {
+            return requestErrors;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LineError lineError = (LineError) o;
+            return getLine() == lineError.getLine() &&
+                    Objects.equals(getId(), lineError.getId()) &&
+                    Objects.equals(getRequestErrors(), lineError.getRequestErrors());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getLine(), getId(), getRequestErrors());
+        }
+    }
+
+    private long imported, failed;
+    private final List<LineError> errors = new ArrayList<>();
+
+    /**
+     * Count lines that were imported
+     *
+     * @param count of the lines
+     */
+    public void imported(final long count) {
+        imported += count;
+    }
+
+    /**
+     * Count a line that was not imported, and report its errors if fewer than {@link #MAX_REPORTED_LINES} have been
+     *
+     * @param line          number of the line
+     * @param id            of the entity on the line, or null
+     * @param requestErrors why the line was not imported
+     */
+    public void failed(final long line, final UUID id, final Collection<RequestError> requestErrors) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_LINES) {
+            errors.add(new LineError(line, id, new HashSet<>(requestErrors)));
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    // the errors of the first failed lines, in line order
+    public List<LineError> getErrors() {
+        final List<LineError> sorted = new ArrayList<>(errors);
+        sorted.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+        return sorted;
+    }
+}
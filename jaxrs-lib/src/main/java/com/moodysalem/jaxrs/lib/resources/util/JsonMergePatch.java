@@ -0,0 +1,74 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Abstract class for applying JSON merge patches, as described in RFC 7396
+ */
+public abstract class JsonMergePatch {
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    /**
+     * Apply a merge patch to a document. Members of a patch object replace the members of the target with the same
+     * name, objects are merged recursively, and null members remove the member from the target. Any other patch
+     * replaces the target entirely
+     *
+     * @param target to patch, which is not modified
+     * @param patch  to apply
+     * @return the patched document
+     */
+    public static JsonNode apply(final JsonNode target, final JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            return patch;
+        }
+
+        final ObjectNode result = target != null && target.isObject() ?
+                ((ObjectNode) target).deepCopy() : JsonNodeFactory.instance.objectNode();
+
+        final Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                result.set(field.getKey(), apply(result.get(field.getKey()), field.getValue()));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the members of a document that differ from another version of the same document
+     *
+     * @param before the document before a change
+     * @param after  the document after the change
+     * @return the members of after that are missing from or different in before, with removed members set to null
+     */
+    public static ObjectNode diff(final ObjectNode before, final ObjectNode after) {
+        final ObjectNode changed = JsonNodeFactory.instance.objectNode();
+
+        final Iterator<Map.Entry<String, JsonNode>> fields = after.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            if (!field.getValue().equals(before.get(field.getKey()))) {
+                changed.set(field.getKey(), field.getValue());
+            }
+        }
+
+        final Iterator<String> names = before.fieldNames();
+        while (names.hasNext()) {
+            final String name = names.next();
+            if (!after.has(name)) {
+                changed.putNull(name);
+            }
+        }
+
+        return changed;
+    }
+}
@@ -0,0 +1,155 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.moodysalem.jaxrs.lib.contextresolvers.ObjectMapperContextResolver;
+import org.hibernate.dialect.DB2Dialect;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Helpers for keyset (cursor) pagination. A cursor is the opaque encoding of the sort key values of the last row
+ * that was sent to the client, and is turned back into a seek predicate that matches only the rows after it
+ */
+public abstract class KeysetCursor {
+    private static final ObjectMapper MAPPER = new ObjectMapperContextResolver().getContext(KeysetCursor.class);
+
+    /**
+     * Encode the sort key values of a row into an opaque cursor
+     *
+     * @param values sort key values, in the order of the sorts
+     * @return url safe cursor string
+     */
+    public static String encode(final List<?> values) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(values));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to encode cursor", e);
+        }
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode(List)}
+     *
+     * @param cursor to decode
+     * @param types  the expected type of each sort key value
+     * @return the sort key values
+     * @throws IllegalArgumentException if the cursor is malformed or does not match the types
+     */
+    public static List<Object> decode(final String cursor, final List<Class<?>> types) {
+        final JsonNode node;
+        try {
+            node = MAPPER.readTree(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+
+        if (!(node instanceof ArrayNode) || node.size() != types.size()) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        final List<Object> values = new ArrayList<>(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            final JsonNode value = node.get(i);
+            values.add(value.isNull() ? null : MAPPER.convertValue(value, types.get(i)));
+        }
+        return values;
+    }
+
+    /**
+     * Whether the database of an entity manager sorts null values before any other value in ascending order
+     *
+     * @param em entity manager
+     * @return true if nulls sort first in ascending order, false if they sort last
+     */
+    public static boolean isNullFirst(final EntityManager em) {
+        return isNullFirst(em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect());
+    }
+
+    /**
+     * Whether a database sorts null values before any other value in ascending order. PostgreSQL, Oracle and DB2 treat
+     * null as larger than any other value, while H2, MySQL and SQL Server treat it as smaller
+     *
+     * @param dialect of the database
+     * @return true if nulls sort first in ascending order, false if they sort last
+     */
+    public static boolean isNullFirst(final Dialect dialect) {
+        return !(dialect instanceof PostgreSQL81Dialect ||
+                dialect instanceof Oracle8iDialect ||
+                dialect instanceof DB2Dialect);
+    }
+
+    /**
+     * Build the predicate that matches the rows strictly after the row with the given sort key values, in the order
+     * the database sorts them
+     *
+     * @param cb        criteria builder
+     * @param keys      the sort key expressions, the last of which should be unique
+     * @param ascending the direction of each sort key
+     * @param values    the sort key values of the last row
+     * @param nullFirst whether the database sorts nulls first in ascending order, see {@link #isNullFirst(Dialect)}
+     * @return seek predicate
+     */
+    public static Predicate after(final CriteriaBuilder cb, final List<? extends Expression<?>> keys,
+                                  final List<Boolean> ascending, final List<Object> values, final boolean nullFirst) {
+        final List<Predicate> disjuncts = new LinkedList<>();
+        final List<Predicate> equalPrefix = new LinkedList<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+            final Expression<?> key = keys.get(i);
+            final Object value = values.get(i);
+            final boolean asc = ascending.get(i);
+
+            // nulls come before the other values when they sort first in the direction of this key
+            final Predicate after;
+            if (asc == nullFirst) {
+                after = value == null ? cb.isNotNull(key) : beyond(cb, key, value, asc);
+            } else {
+                after = value == null ? null : cb.or(beyond(cb, key, value, asc), cb.isNull(key));
+            }
+
+            if (after != null) {
+                final List<Predicate> conjuncts = new LinkedList<>(equalPrefix);
+                conjuncts.add(after);
+                disjuncts.add(cb.and(conjuncts.stream().toArray(Predicate[]::new)));
+            }
+
+            equalPrefix.add(value == null ? cb.isNull(key) : cb.equal(key, value));
+        }
+
+        return cb.or(disjuncts.stream().toArray(Predicate[]::new));
+    }
+
+    /**
+     * Build the predicate that matches the values of a sort key that are greater or less than a value
+     *
+     * @param cb      criteria builder
+     * @param key     sort key expression
+     * @param value   of the sort key, decoded to the java type of the key
+     * @param greater whether to match greater values instead of lesser values
+     * @param <Y>     java type of the sort key
+     * @return comparison predicate
+     */
+    // sort keys are basic attributes, and the values were decoded to the same comparable java type
+    @SuppressWarnings("unchecked")
+    private static <Y extends Comparable<? super Y>> Predicate beyond(final CriteriaBuilder cb, final Expression<?> key,
+                                                                      final Object value, final boolean greater) {
+        final Expression<Y> comparable = (Expression<Y>) key;
+        return greater ? cb.greaterThan(comparable, (Y) value) : cb.lessThan(comparable, (Y) value);
+    }
+}
@@ -0,0 +1,196 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.moodysalem.jaxrs.lib.resources.config.CountConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.CountStrategy;
+import com.moodysalem.jaxrs.lib.resources.config.CursorParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.FieldsParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.PaginationParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.SortParameterConfiguration;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The immutable result of parsing the query parameters of a list request. It is parsed once and shared by every
+ * query made for the request, and since it only depends on the query string it can be cached across requests
+ */
+public class ListQuerySpec {
+    private static final Logger LOG = Logger.getLogger(ListQuerySpec.class.getName());
+
+    /**
+     * Parse the query parameters of a list request
+     *
+     * @param rawQuery         the undecoded query string, used to identify the spec
+     * @param params           the decoded query parameters
+     * @param paginationConfig how pagination parameters are named and limited
+     * @param sortConfig       how sort parameters are named and separated
+     * @param cursorConfig     how the cursor parameter is named, or null if cursors are not allowed
+     * @param countConfig      how the count strategy parameter is named and defaulted
+     * @param fieldsConfig     how the fields parameter is named and separated, or null if fields cannot be requested
+     * @return the parsed spec
+     */
+    public static ListQuerySpec parse(final String rawQuery,
+                                      final MultivaluedMap<String, String> params,
+                                      final PaginationParameterConfiguration paginationConfig,
+                                      final SortParameterConfiguration sortConfig,
+                                      final CursorParameterConfiguration cursorConfig,
+                                      final CountConfiguration countConfig,
+                                      final FieldsParameterConfiguration fieldsConfig) {
+        return new ListQuerySpec(
+                rawQuery,
+                parseStart(params.getFirst(paginationConfig.getStartQueryParameterName())),
+                parseCount(params.getFirst(paginationConfig.getCountQueryParameterName()), paginationConfig.getMaxPerPage()),
+                cursorConfig != null ? params.getFirst(cursorConfig.getQueryParameterName()) : null,
+                SortInfo.from(params.get(sortConfig.getQueryParameterName()),
+                        sortConfig.getSortInfoPattern(), sortConfig.getSortPathPattern()),
+                parseCountStrategy(countConfig.getQueryParameterName() != null ?
+                        params.getFirst(countConfig.getQueryParameterName()) : null, countConfig.getDefaultStrategy()),
+                fieldsConfig != null ? parseFields(params.get(fieldsConfig.getQueryParameterName()), fieldsConfig) : null
+        );
+    }
+
+    /**
+     * Get the fields of each entity that should be returned
+     *
+     * @param values       of the fields query parameter
+     * @param fieldsConfig how the fields are separated
+     * @return the distinct requested fields in order, or null if no fields were requested
+     */
+    private static Set<String> parseFields(final List<String> values, final FieldsParameterConfiguration fieldsConfig) {
+        if (values == null) {
+            return null;
+        }
+
+        final Set<String> fields = new LinkedHashSet<>();
+        for (final String value : values) {
+            for (final String field : fieldsConfig.getFieldPattern().split(value)) {
+                if (!field.trim().isEmpty()) {
+                    fields.add(field.trim());
+                }
+            }
+        }
+        return fields.isEmpty() ? null : fields;
+    }
+
+    /**
+     * Get the first record that should be returned
+     *
+     * @param start value of the start query parameter
+     * @return an int corresponding to the first record to return
+     */
+    private static int parseStart(final String start) {
+        if (start != null) {
+            try {
+                return Math.max(Integer.parseInt(start), 0);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Invalid start query parameter received", e);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the # of records that should be returned
+     *
+     * @param countString value of the count query parameter
+     * @param maxCount    the maximum page size, or null if the page size is not limited
+     * @return the # of records, or null if all should be returned
+     */
+    private static Integer parseCount(final String countString, final Integer maxCount) {
+        Integer count = null;
+        if (countString != null) {
+            try {
+                count = Integer.parseInt(countString);
+            } catch (NumberFormatException e) {
+                LOG.log(Level.WARNING, "Invalid count query parameter received", e);
+            }
+        }
+
+        if (count != null) {
+            if (maxCount != null) {
+                return Math.max(Math.min(count, maxCount), 0);
+            } else {
+                return Math.max(count, 0);
+            }
+        }
+        return maxCount;
+    }
+
+    /**
+     * Get the strategy for counting the entities that match the request
+     *
+     * @param strategy        value of the count strategy query parameter
+     * @param defaultStrategy the strategy used when none is requested
+     * @return the strategy requested by the client if it is no more expensive than the default strategy, otherwise
+     * the default strategy
+     */
+    private static CountStrategy parseCountStrategy(final String strategy, final CountStrategy defaultStrategy) {
+        if (strategy != null) {
+            try {
+                final CountStrategy requested = CountStrategy.valueOf(strategy.trim().toUpperCase());
+                if (requested.isNoMoreExpensiveThan(defaultStrategy)) {
+                    return requested;
+                }
+                LOG.log(Level.WARNING, "Count strategy more expensive than the default requested: " + requested);
+            } catch (IllegalArgumentException e) {
+                LOG.log(Level.WARNING, "Invalid count strategy query parameter received", e);
+            }
+        }
+        return defaultStrategy;
+    }
+
+    private final String rawQuery;
+    private final int start;
+    private final Integer count;
+    private final String cursor;
+    private final List<SortInfo> sorts;
+    private final CountStrategy countStrategy;
+    private final Set<String> fields;
+
+    public ListQuerySpec(final String rawQuery, final int start, final Integer count, final String cursor,
+                         final List<SortInfo> sorts, final CountStrategy countStrategy, final Set<String> fields) {
+        this.rawQuery = rawQuery;
+        this.start = start;
+        this.count = count;
+        this.cursor = cursor;
+        this.sorts = sorts != null ? Collections.unmodifiableList(sorts) : Collections.emptyList();
+        this.countStrategy = countStrategy;
+        this.fields = fields != null ? Collections.unmodifiableSet(fields) : null;
+    }
+
+    public String getRawQuery() {
+        return rawQuery;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    // the # of records to return, or null if all should be returned
+    public Integer getCount() {
+        return count;
+    }
+
+    // the cursor to return records after, an empty string for the first page, or null if keyset pagination is not used
+    public String getCursor() {
+        return cursor;
+    }
+
+    public List<SortInfo> getSorts() {
+        return sorts;
+    }
+
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    // the fields of each entity to return, or null if whole entities should be returned
+    public Set<String> getFields() {
+        return fields;
+    }
+}
@@ -0,0 +1,49 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import javax.ws.rs.core.EntityTag;
+import java.util.Date;
+
+/**
+ * Summarizes the rows that match a list request, so that a client holding a copy of the list can be told that it is
+ * still current without the list being fetched again. Rows that are added or updated move the last modified time,
+ * and rows that are removed change the count
+ */
+public class ListValidator {
+    private final Long lastModified;
+    private final long count;
+    private final String request;
+
+    /**
+     * @param lastModified the latest modification time of the matching rows in millis, or null if none match
+     * @param count        the number of matching rows
+     * @param request      identifies the list request, including paging and sorting
+     */
+    public ListValidator(final Long lastModified, final long count, final String request) {
+        this.lastModified = lastModified;
+        this.count = count;
+        this.request = request;
+    }
+
+    public Date getLastModified() {
+        return lastModified != null ? new Date(lastModified) : null;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The tag is weak because it only tells that the same rows are returned, and modifications made within the same
+     * millisecond are not distinguished
+     *
+     * @return the tag of the list
+     */
+    public EntityTag getEntityTag() {
+        return new EntityTag(
+                Long.toHexString(lastModified != null ? lastModified : 0) + "-" +
+                        Long.toHexString(count) + "-" +
+                        Integer.toHexString(request != null ? request.hashCode() : 0),
+                true
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The response to a request for many entities by ID, which lists the entities that were found along with the IDs
+ * that do not exist or do not match the request
+ *
+ * @param <T> type of the entities
+ */
+public class MultiGetResult<T> {
+    private final List<T> found;
+    private final List<UUID> missing;
+
+    public MultiGetResult(@JsonProperty("found") final List<T> found,
+                          @JsonProperty("missing") final List<UUID> missing) {
+        this.found = Collections.unmodifiableList(found);
+        this.missing = Collections.unmodifiableList(missing);
+    }
+
+    // the entities that were found, in the order their IDs were requested
+    public List<T> getFound() {
+        return found;
+    }
+
+    // the requested IDs without an entity, in the order they were requested
+    public List<UUID> getMissing() {
+        return missing;
+    }
+}
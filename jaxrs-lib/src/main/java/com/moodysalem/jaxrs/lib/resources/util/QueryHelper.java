@@ -1,19 +1,67 @@
 package com.moodysalem.jaxrs.lib.resources.util;
 
 import com.moodysalem.hibernate.model.BaseEntity;
+import com.moodysalem.hibernate.model.BaseEntity_;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
-import java.util.List;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Abstract class for helping with wrapping methods in transactions
  */
 public abstract class QueryHelper {
+    // the most IDs bound to one IN list, well below the parameter limits of Oracle (1000) and SQL Server (2100)
+    public static final int MAX_IN_LIST_SIZE = 512;
+
     public interface Predicator<T> {
         Predicate from(Root<T> root);
     }
 
+    /**
+     * Work done with the results of a scrolled query
+     */
+    public interface ScrollWork {
+        void scroll(ScrollableResults results) throws IOException;
+    }
+
+    /**
+     * Scroll forward through the results of a query, fetching them from the database a chunk at a time. The scroll
+     * runs in a transaction that is rolled back when it is done, since drivers such as PostgreSQL's ignore the fetch
+     * size under autocommit and read every row before the first is returned. MySQL only streams results with a fetch
+     * size of {@link Integer#MIN_VALUE}, which it reads one row at a time
+     *
+     * @param em        entity manager of the query
+     * @param query     to scroll, which is made read only
+     * @param chunkSize the number of rows to fetch at a time
+     * @param work      to do with the results
+     * @throws IOException if the work cannot write the results
+     */
+    public static void scroll(final EntityManager em, final org.hibernate.query.Query<?> query, final int chunkSize,
+                              final ScrollWork work) throws IOException {
+        final boolean mysql = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof MySQLDialect;
+        query.setFetchSize(mysql ? Integer.MIN_VALUE : chunkSize).setReadOnly(true);
+
+        final EntityTransaction etx = em.getTransaction();
+        etx.begin();
+        try (final ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            work.scroll(results);
+        } finally {
+            if (etx.isActive()) {
+                etx.rollback();
+            }
+        }
+    }
+
     public static <T extends BaseEntity> Subquery<T> all(final CriteriaBuilder cb,
                                                          final Class<T> clazz) {
         return subquery(cb, clazz, (root) -> null);
@@ -66,4 +114,101 @@ public abstract class QueryHelper {
         return em.createQuery(query).getResultList();
     }
 
-}
\ No newline at end of file
+    /**
+     * Load the entities with some IDs. The IDs are bound in chunks of at most {@link #MAX_IN_LIST_SIZE}, and each
+     * chunk is padded to a power of two so that only a few distinct statements are ever prepared
+     *
+     * @param em    entity manager
+     * @param clazz of the entities
+     * @param ids   of the entities to load
+     * @param hints to set on each query, such as a load graph
+     * @param <T>   entity type
+     * @return the entities that exist, each once and in no particular order
+     */
+    public static <T extends BaseEntity> List<T> queryByIds(final EntityManager em, final Class<T> clazz,
+                                                            final Collection<UUID> ids,
+                                                            final Map<String, Object> hints) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> query = cb.createQuery(clazz);
+        final Root<T> root = query.from(clazz);
+        final ParameterExpression<Collection<?>> idsParameter = collectionParameter(cb);
+        query.select(root).where(root.get(BaseEntity_.id).in(idsParameter));
+
+        // entities are repeated once per row when the hints fetch collections
+        final Map<UUID, T> entities = new LinkedHashMap<>();
+        for (final List<UUID> chunk : chunk(ids, MAX_IN_LIST_SIZE)) {
+            final TypedQuery<T> typedQuery = em.createQuery(query).setParameter(idsParameter, chunk);
+            hints.forEach(typedQuery::setHint);
+            typedQuery.getResultList().forEach(entity -> entities.putIfAbsent(entity.getId(), entity));
+        }
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Create a parameter that is bound to a collection of values, for use with {@link Expression#in(Expression)}
+     *
+     * @param cb criteria builder
+     * @return the parameter
+     */
+    // the criteria builder can only create parameters of the raw collection type
+    @SuppressWarnings("unchecked")
+    public static ParameterExpression<Collection<?>> collectionParameter(final CriteriaBuilder cb) {
+        return (ParameterExpression<Collection<?>>) (ParameterExpression<?>) cb.parameter(Collection.class);
+    }
+
+    /**
+     * Load the entities with some IDs, in chunks
+     *
+     * @param em    entity manager
+     * @param clazz of the entities
+     * @param ids   of the entities to load
+     * @param <T>   entity type
+     * @return the entities that exist, each once and in no particular order
+     * @see #queryByIds(EntityManager, Class, Collection, Map)
+     */
+    public static <T extends BaseEntity> List<T> queryByIds(final EntityManager em, final Class<T> clazz,
+                                                            final Collection<UUID> ids) {
+        return queryByIds(em, clazz, ids, Collections.emptyMap());
+    }
+
+    /**
+     * Split values into chunks of at most a maximum size, padding each chunk to the next power of two by repeating its
+     * last value. Repeated values do not change the result of an IN list, but let statements of the same size be
+     * reused
+     *
+     * @param values       to split, which are deduplicated
+     * @param maxChunkSize the largest chunk, which should be a power of two
+     * @param <X>          type of the values
+     * @return the padded chunks
+     */
+    public static <X> List<List<X>> chunk(final Collection<X> values, final int maxChunkSize) {
+        final List<X> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        final List<List<X>> chunks = new ArrayList<>();
+
+        for (int from = 0; from < distinct.size(); from += maxChunkSize) {
+            final List<X> chunk = new ArrayList<>(distinct.subList(from, Math.min(from + maxChunkSize, distinct.size())));
+            final int padded = Math.min(Integer.highestOneBit(chunk.size() - 1) << 1, maxChunkSize);
+            final X last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Describe a query by its query string and the values bound to its parameters, so that two queries that would
+     * return the same results have the same description
+     *
+     * @param query to describe
+     * @return description of the query
+     */
+    public static String describe(final TypedQuery<?> query) {
+        final org.hibernate.query.Query<?> hq = query.unwrap(org.hibernate.query.Query.class);
+        return hq.getQueryString() + hq.getParameterMetadata().getNamedParameterNames().stream().sorted()
+                .map(name -> name + "=" + hq.getParameterValue(name))
+                .collect(Collectors.joining(", ", " [", "]"));
+    }
+}
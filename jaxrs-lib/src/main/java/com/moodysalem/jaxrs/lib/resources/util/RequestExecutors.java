@@ -0,0 +1,139 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Abstract class for creating the executors that run the database work of entity resource requests off the container
+ * threads
+ */
+public abstract class RequestExecutors {
+    private static final Logger LOG = Logger.getLogger(RequestExecutors.class.getName());
+
+    /**
+     * Create an executor for request work. Requests run on a bounded pool of platform threads, and are rejected when
+     * all the threads are busy and the queue is full
+     *
+     * @param name       of the executor, used to name its threads
+     * @param maxThreads the number of threads, which should not be more than the size of the connection pool
+     * @return the executor
+     */
+    public static ExecutorService create(final String name, final int maxThreads) {
+        return createBoundedExecutor(name, maxThreads);
+    }
+
+    /**
+     * Create an executor that runs each request on its own virtual thread, falling back to
+     * {@link #create(String, int)} when the JVM does not have virtual threads. The connection pool and Hibernate wait
+     * for connections while holding monitors, which pins virtual threads to their carriers, so requests are rejected
+     * instead of started when maxConcurrent of them are already running
+     *
+     * @param name          of the executor, used to name its threads when virtual threads are not available
+     * @param maxConcurrent the number of requests that run at once, which should be the size of the connection pool
+     * @return the executor
+     */
+    public static ExecutorService createVirtual(final String name, final int maxConcurrent) {
+        final ExecutorService virtual = createVirtualThreadExecutor();
+        return virtual != null ? new PermittedExecutor(virtual, maxConcurrent) : create(name, maxConcurrent);
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task
+     *
+     * @return the executor, or null if the JVM does not have virtual threads
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            LOG.log(Level.WARNING, "Failed to create a virtual thread executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * Create a fixed pool of daemon threads with a bounded queue
+     */
+    private static ExecutorService createBoundedExecutor(final String name, final int maxThreads) {
+        final AtomicLong threadCount = new AtomicLong(0);
+        return new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxThreads * 4),
+                runnable -> {
+                    final Thread thread = new Thread(runnable,
+                            String.format("%s-request-%s", name, threadCount.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Runs tasks on another executor only while a permit is available, and rejects them otherwise
+     */
+    static class PermittedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        PermittedExecutor(final ExecutorService delegate, final int permits) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(permits);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("No permit is available to run the task");
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import org.hibernate.dialect.*;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.Joinable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the approximate number of rows in the table of an entity from the statistics kept by the database's query
+ * planner, which is much cheaper than counting the rows of a large table
+ */
+public abstract class RowCountEstimator {
+    private static final Logger LOG = Logger.getLogger(RowCountEstimator.class.getName());
+
+    /**
+     * Get the estimated number of rows in the table of an entity
+     *
+     * @param em    entity manager to query with
+     * @param clazz entity class
+     * @return the estimated number of rows, or null if the database does not provide an estimate or has not yet
+     * collected statistics for the table
+     */
+    public static Long estimate(final EntityManager em, final Class<?> clazz) {
+        final SessionFactoryImplementor sfi = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+
+        final String sql = getEstimateSql(sfi.getJdbcServices().getDialect());
+        final EntityPersister persister = sfi.getMetamodel().entityPersister(clazz);
+        if (sql == null || !(persister instanceof Joinable)) {
+            return null;
+        }
+
+        // the table name may be qualified with the schema
+        final String tableName = ((Joinable) persister).getTableName();
+        final String unqualified = tableName.substring(tableName.lastIndexOf('.') + 1);
+
+        try {
+            final List<?> result = em.createNativeQuery(sql).setParameter("table", unqualified).getResultList();
+            if (result.isEmpty() || !(result.get(0) instanceof Number)) {
+                return null;
+            }
+
+            // PostgreSQL reports -1 for a table that has never been vacuumed or analyzed
+            final long estimate = ((Number) result.get(0)).longValue();
+            return estimate >= 0 ? estimate : null;
+        } catch (PersistenceException e) {
+            LOG.log(Level.WARNING, "Failed to estimate the row count of " + tableName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the query that reads the estimated row count of a table in a particular database
+     *
+     * @param dialect of the database
+     * @return the query, with the table name as the "table" parameter, or null if no estimate is available
+     */
+    private static String getEstimateSql(final Dialect dialect) {
+        if (dialect instanceof PostgreSQL81Dialect) {
+            return "SELECT c.reltuples FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                    "WHERE n.nspname = current_schema() AND LOWER(c.relname) = LOWER(:table)";
+        }
+        if (dialect instanceof MySQLDialect) {
+            return "SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = LOWER(:table)";
+        }
+        if (dialect instanceof H2Dialect) {
+            return "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE LOWER(TABLE_NAME) = LOWER(:table)";
+        }
+        if (dialect instanceof SQLServerDialect) {
+            return "SELECT SUM(p.rows) FROM sys.partitions p JOIN sys.tables t ON p.object_id = t.object_id " +
+                    "WHERE p.index_id IN (0, 1) AND LOWER(t.name) = LOWER(:table)";
+        }
+        if (dialect instanceof Oracle8iDialect) {
+            return "SELECT NUM_ROWS FROM USER_TABLES WHERE LOWER(TABLE_NAME) = LOWER(:table)";
+        }
+        return null;
+    }
+}
@@ -18,25 +18,36 @@ public class SortInfo {
      * @return sorting information
      */
     public static List<SortInfo> from(final List<String> sortParams, final String orderSeparator, final String pathSeparator) {
+        return from(sortParams, Pattern.compile(Pattern.quote(orderSeparator)), Pattern.compile(Pattern.quote(pathSeparator)));
+    }
+
+    /**
+     * Parse the sort information out of some set of sort strings with precompiled separators
+     *
+     * @param sortParams strings indicating sorts
+     * @param orderSep   matches the separator between the Ascending/Descending indicator and the path of the attribute
+     * @param pathSep    matches the separator between levels of the path attribute to sort on
+     * @return sorting information
+     */
+    public static List<SortInfo> from(final List<String> sortParams, final Pattern orderSep, final Pattern pathSep) {
         if (sortParams == null || sortParams.isEmpty()) {
             return Collections.emptyList();
         }
 
         final List<SortInfo> sorts = new LinkedList<>();
-        final String orderSep = Pattern.quote(orderSeparator), pathSep = Pattern.quote(pathSeparator);
 
         for (final String sort : sortParams) {
             if (sort == null || sort.trim().isEmpty()) {
                 continue;
             }
 
-            final String[] pieces = sort.split(orderSep);
+            final String[] pieces = orderSep.split(sort);
             if (pieces.length != 2) {
                 continue;
             }
 
             final boolean asc = "A".equalsIgnoreCase(pieces[0].trim());
-            final String[] pathPieces = Stream.of(pieces[1].split(pathSep))
+            final String[] pathPieces = Stream.of(pathSep.split(pieces[1]))
                     .filter(s -> s != null && !s.trim().isEmpty())
                     .map(String::trim)
                     .toArray(String[]::new);
@@ -0,0 +1,54 @@
+package com.moodysalem.hibernate.dialect;
+
+import com.moodysalem.hibernate.model.BaseEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.*;
+import org.hibernate.engine.spi.RowSelection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.testng.annotations.Test;
+
+import javax.persistence.Entity;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class WindowFunctionsTest {
+    @Entity(name = "WindowEntity")
+    public static class WindowEntity extends BaseEntity {
+        private String name;
+    }
+
+    /**
+     * Get the SQL generated for a page of entities with the total count, without connecting to a database
+     */
+    private static String getPageSql(final Class<? extends Dialect> dialect) {
+        try (final SessionFactory sf = new MetadataSources(
+                new StandardServiceRegistryBuilder()
+                        .applySetting(AvailableSettings.DIALECT, dialect.getName())
+                        .applySetting("hibernate.temp.use_jdbc_metadata_defaults", false)
+                        .build()
+        ).addAnnotatedClass(WindowEntity.class).buildMetadata().buildSessionFactory()) {
+            final SessionFactoryImplementor sfi = sf.unwrap(SessionFactoryImplementor.class);
+            final String sql = sfi.getQueryPlanCache().getHQLQueryPlan(
+                    "select e.id, " + WindowFunctions.COUNT_OVER + "() from WindowEntity e order by e.name",
+                    false, Collections.emptyMap()).getSqlStrings()[0];
+
+            final RowSelection selection = new RowSelection();
+            selection.setFirstRow(20);
+            selection.setMaxRows(10);
+            return sfi.getJdbcServices().getDialect().getLimitHandler().processSql(sql, selection).toLowerCase();
+        }
+    }
+
+    @Test
+    public void testCountOver() {
+        for (final Class<? extends Dialect> dialect : Arrays.asList(PostgreSQL9Dialect.class, Oracle10gDialect.class,
+                SQLServer2012Dialect.class, DB2Dialect.class)) {
+            final String sql = getPageSql(dialect);
+            // the window is computed over every matching row, not just the page
+            assert sql.contains("count(*) over ()") : sql;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class CsvWriterTest {
+    @Test
+    public void testEscape() {
+        assert CsvWriter.escape(null).equals("");
+        assert CsvWriter.escape("plain value").equals("plain value");
+        assert CsvWriter.escape("a,b").equals("\"a,b\"");
+        assert CsvWriter.escape("say \"hi\"").equals("\"say \"\"hi\"\"\"");
+        assert CsvWriter.escape("two\nlines").equals("\"two\nlines\"");
+    }
+
+    @Test
+    public void testWriteRow() throws IOException {
+        final StringWriter out = new StringWriter();
+        final CsvWriter writer = new CsvWriter(out);
+        writer.writeRow(Arrays.asList("id", "name"));
+        writer.writeRow(Arrays.asList("1", null));
+        writer.writeRow(Arrays.asList("2", "x,y"));
+        writer.flush();
+        assert out.toString().equals("id,name\r\n1,\r\n2,\"x,y\"\r\n");
+    }
+}
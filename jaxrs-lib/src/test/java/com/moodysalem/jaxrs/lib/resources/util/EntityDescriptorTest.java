@@ -0,0 +1,51 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.moodysalem.hibernate.model.BaseEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.H2Dialect;
+import org.testng.annotations.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import java.util.Set;
+
+public class EntityDescriptorTest {
+    @Entity(name = "DescribedParent")
+    public static class Parent extends BaseEntity {
+        private String name;
+
+        @OneToMany(mappedBy = "parent")
+        private Set<Child> children;
+    }
+
+    @Entity(name = "DescribedChild")
+    public static class Child extends BaseEntity {
+        private String name;
+
+        @ManyToOne
+        private Parent parent;
+    }
+
+    @Test
+    public void testSingularPaths() {
+        try (final SessionFactory sf = new MetadataSources(
+                new StandardServiceRegistryBuilder()
+                        .applySetting(AvailableSettings.DIALECT, H2Dialect.class.getName())
+                        .applySetting("hibernate.temp.use_jdbc_metadata_defaults", false)
+                        .build()
+        ).addAnnotatedClass(Parent.class).addAnnotatedClass(Child.class).buildMetadata().buildSessionFactory()) {
+            final EntityDescriptor<Child> child = EntityDescriptor.of(sf.getMetamodel(), Child.class);
+            assert child.getAttributePath("name").getJoins().isEmpty();
+            assert child.getAttributePath("parent.name").getJoins().size() == 1;
+
+            // a collection has many values per entity, so none of them can be sorted by or selected
+            final EntityDescriptor<Parent> parent = EntityDescriptor.of(sf.getMetamodel(), Parent.class);
+            assert parent.getAttributePath("name") != null;
+            assert parent.getAttributePaths().keySet().stream().noneMatch(path -> path.startsWith("children."));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+public class JsonMergePatchTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode json(final String json) throws IOException {
+        return MAPPER.readTree(json.replace('\'', '"'));
+    }
+
+    private static boolean patches(final String target, final String patch, final String result) throws IOException {
+        return JsonMergePatch.apply(json(target), json(patch)).equals(json(result));
+    }
+
+    @Test
+    public void testApply() throws IOException {
+        // examples from appendix A of RFC 7396
+        assert patches("{'a':'b'}", "{'a':'c'}", "{'a':'c'}");
+        assert patches("{'a':'b'}", "{'b':'c'}", "{'a':'b','b':'c'}");
+        assert patches("{'a':'b'}", "{'a':null}", "{}");
+        assert patches("{'a':'b','b':'c'}", "{'a':null}", "{'b':'c'}");
+        assert patches("{'a':['b']}", "{'a':'c'}", "{'a':'c'}");
+        assert patches("{'a':'c'}", "{'a':['b']}", "{'a':['b']}");
+        assert patches("{'a':{'b':'c'}}", "{'a':{'b':'d','c':null}}", "{'a':{'b':'d'}}");
+        assert patches("{'a':[{'b':'c'}]}", "{'a':[1]}", "{'a':[1]}");
+        assert patches("['a','b']", "['c','d']", "['c','d']");
+        assert patches("{'a':'b'}", "['c']", "['c']");
+        assert patches("{'e':null}", "{'a':1}", "{'e':null,'a':1}");
+        assert patches("[1,2]", "{'a':'b','c':null}", "{'a':'b'}");
+        assert patches("{}", "{'a':{'bb':{'ccc':null}}}", "{'a':{'bb':{}}}");
+    }
+
+    @Test
+    public void testApplyDoesNotModifyTarget() throws IOException {
+        final JsonNode target = json("{'a':{'b':'c'}}");
+        JsonMergePatch.apply(target, json("{'a':{'b':null}}"));
+        assert target.equals(json("{'a':{'b':'c'}}"));
+    }
+
+    @Test
+    public void testDiff() throws IOException {
+        final ObjectNode before = (ObjectNode) json("{'a':1,'b':[1,2],'c':'x'}");
+        assert JsonMergePatch.diff(before, before.deepCopy()).size() == 0;
+        assert JsonMergePatch.diff(before, (ObjectNode) json("{'a':1,'b':[2,1],'d':true}"))
+                .equals(json("{'b':[2,1],'d':true,'c':null}"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQL5Dialect;
+import org.hibernate.dialect.Oracle10gDialect;
+import org.hibernate.dialect.PostgreSQL9Dialect;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class KeysetCursorTest {
+    @Test
+    public void testRoundTrip() {
+        final UUID id = UUID.randomUUID();
+        final List<Object> values = Arrays.asList("abc", null, 12L, id);
+
+        final String cursor = KeysetCursor.encode(values);
+        assert cursor.matches("[A-Za-z0-9_-]+");
+
+        final List<Object> decoded = KeysetCursor.decode(cursor,
+                Arrays.asList(String.class, Integer.class, Long.class, UUID.class));
+        assert decoded.equals(values);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongNumberOfKeys() {
+        KeysetCursor.decode(KeysetCursor.encode(Arrays.asList("abc", 1)), Arrays.asList(String.class));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMalformed() {
+        KeysetCursor.decode("not a cursor!", Arrays.asList(String.class));
+    }
+
+    @Test
+    public void testNullOrdering() {
+        assert KeysetCursor.isNullFirst(new H2Dialect());
+        assert KeysetCursor.isNullFirst(new MySQL5Dialect());
+        assert !KeysetCursor.isNullFirst(new PostgreSQL9Dialect());
+        assert !KeysetCursor.isNullFirst(new Oracle10gDialect());
+    }
+}
@@ -0,0 +1,87 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import com.moodysalem.jaxrs.lib.resources.config.CountConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.CountStrategy;
+import com.moodysalem.jaxrs.lib.resources.config.CursorParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.FieldsParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.PaginationParameterConfiguration;
+import com.moodysalem.jaxrs.lib.resources.config.SortParameterConfiguration;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ListQuerySpecTest {
+    private static final PaginationParameterConfiguration PAGINATION =
+            new PaginationParameterConfiguration("start", "count", "X-Start", "X-Count", "X-Total-Count", 100);
+
+    private static ListQuerySpec parse(final MultivaluedMap<String, String> params) {
+        return ListQuerySpec.parse("raw", params, PAGINATION, SortParameterConfiguration.DEFAULT,
+                CursorParameterConfiguration.DEFAULT, CountConfiguration.DEFAULT, FieldsParameterConfiguration.DEFAULT);
+    }
+
+    @Test
+    public void testDefaults() {
+        final ListQuerySpec spec = parse(new MultivaluedHashMap<>());
+        assert spec.getStart() == 0;
+        assert spec.getCount() == 100;
+        assert spec.getCursor() == null;
+        assert spec.getSorts().isEmpty();
+        assert spec.getCountStrategy() == CountStrategy.EXACT;
+        assert spec.getFields() == null;
+    }
+
+    @Test
+    public void testParse() {
+        final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+        params.putSingle("start", "-5");
+        params.putSingle("count", "1000");
+        params.putSingle("cursor", "");
+        params.put("sort", Arrays.asList("D|a.b", "A|c"));
+        params.putSingle("countStrategy", "cached");
+        params.put("fields", Arrays.asList("a, b", "c,,a"));
+
+        final ListQuerySpec spec = parse(params);
+        assert spec.getRawQuery().equals("raw");
+        assert spec.getStart() == 0;
+        assert spec.getCount() == 100;
+        assert spec.getCursor().isEmpty();
+        assert spec.getSorts().equals(Arrays.asList(
+                new SortInfo(new String[]{"a", "b"}, false),
+                new SortInfo(new String[]{"c"}, true)
+        ));
+        assert spec.getCountStrategy() == CountStrategy.CACHED;
+        assert new ArrayList<>(spec.getFields()).equals(Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void testInvalidValues() {
+        final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+        params.putSingle("start", "abc");
+        params.putSingle("count", "def");
+        params.putSingle("countStrategy", "bogus");
+
+        final ListQuerySpec spec = parse(params);
+        assert spec.getStart() == 0;
+        assert spec.getCount() == 100;
+        assert spec.getCountStrategy() == CountStrategy.EXACT;
+    }
+
+    @Test
+    public void testCountStrategyNoMoreExpensiveThanDefault() {
+        final MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+        params.putSingle("countStrategy", "exact");
+
+        final CountConfiguration estimated = new CountConfiguration(CountStrategy.ESTIMATED, "countStrategy", 0);
+        assert ListQuerySpec.parse("", params, PAGINATION, SortParameterConfiguration.DEFAULT,
+                CursorParameterConfiguration.DEFAULT, estimated, FieldsParameterConfiguration.DEFAULT)
+                .getCountStrategy() == CountStrategy.ESTIMATED;
+
+        params.putSingle("countStrategy", "none");
+        assert ListQuerySpec.parse("", params, PAGINATION, SortParameterConfiguration.DEFAULT,
+                CursorParameterConfiguration.DEFAULT, estimated, FieldsParameterConfiguration.DEFAULT)
+                .getCountStrategy() == CountStrategy.NONE;
+    }
+}
@@ -0,0 +1,31 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class QueryHelperTest {
+    @Test
+    public void testChunkPadding() {
+        assert QueryHelper.chunk(Collections.<Integer>emptyList(), 8).isEmpty();
+        assert QueryHelper.chunk(Collections.singletonList(1), 8)
+                .equals(Collections.singletonList(Collections.singletonList(1)));
+        assert QueryHelper.chunk(Arrays.asList(1, 2, 3), 8).equals(Collections.singletonList(Arrays.asList(1, 2, 3, 3)));
+        assert QueryHelper.chunk(Arrays.asList(1, 2, 3, 4), 8).equals(Collections.singletonList(Arrays.asList(1, 2, 3, 4)));
+        assert QueryHelper.chunk(Arrays.asList(1, 1, 2), 8).equals(Collections.singletonList(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void testChunkBounds() {
+        final List<Integer> values = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        final List<List<Integer>> chunks = QueryHelper.chunk(values, QueryHelper.MAX_IN_LIST_SIZE);
+
+        assert chunks.size() == 2;
+        assert chunks.stream().allMatch(chunk -> chunk.size() == QueryHelper.MAX_IN_LIST_SIZE);
+        assert chunks.stream().flatMap(List::stream).distinct().count() == values.size();
+    }
+}
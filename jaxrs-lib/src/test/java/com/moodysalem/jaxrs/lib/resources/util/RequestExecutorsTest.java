@@ -0,0 +1,54 @@
+package com.moodysalem.jaxrs.lib.resources.util;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RequestExecutorsTest {
+    @Test
+    public void testPermits() throws InterruptedException {
+        final ExecutorService executor = new RequestExecutors.PermittedExecutor(Executors.newCachedThreadPool(), 1);
+        try {
+            final CountDownLatch release = new CountDownLatch(1), done = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+
+            // the only permit is held by the running task
+            boolean rejected = false;
+            try {
+                executor.execute(() -> {
+                });
+            } catch (RejectedExecutionException e) {
+                rejected = true;
+            }
+            assert rejected;
+
+            release.countDown();
+            assert done.await(5, TimeUnit.SECONDS);
+
+            // the permit is returned when the task completes
+            final CountDownLatch next = new CountDownLatch(1);
+            for (int attempt = 0; next.getCount() > 0 && attempt < 100; attempt++) {
+                try {
+                    executor.execute(next::countDown);
+                } catch (RejectedExecutionException e) {
+                    Thread.sleep(10);
+                }
+            }
+            assert next.await(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}